@@ -0,0 +1,176 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.collect.ImmutableList;
+import io.atlassian.fugue.Pair;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.DistanceOracle;
+import uk.ac.bris.cs.scotlandyard.model.LocationSet;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.TicketDistances;
+
+/**
+ * Detective Ai tracking the nodes MrX could be on, see {@link MrXBelief}.
+ * <br>
+ * Every time a detective has to move, the moves of all detectives still to move in the round are
+ * planned together: each in turn takes the move that best spreads the detectives over where MrX
+ * could be next, given where the others are or are planned to go, until no detective's move
+ * changes. Landing on a node MrX could be on counts as a chance of catching him. The planned move
+ * of one detective is played and the rest are planned again on the next call, as MrX's possible
+ * nodes shrink when a detective lands on one of them.
+ * <br>
+ * Only plays the detectives; on MrX's turn it picks a random move.
+ */
+public class BeliefDetectives implements Ai {
+
+	// Rounds of improving each detective's move in turn, at most
+	private static final int PASSES = 4;
+	// How much a certain catch is worth in average distance to MrX's next possible nodes
+	private static final double CATCH = 20;
+	// Distances are capped here, so a node a detective can't reach with its tickets counts as far
+	// away; longer than any path on the standard map
+	private static final int MAX_DISTANCE = 24;
+
+	private final Random random = new Random();
+	private MrXBelief belief;
+
+	@Nonnull @Override public String name() { return "Belief Detectives"; }
+
+	@Override public void onStart() { belief = null; }
+
+	@Nonnull @Override public Move pickMove(
+			@Nonnull Board board,
+			Pair<Long, TimeUnit> timeoutPair) {
+		long deadline = System.nanoTime() + timeoutPair.right().toNanos(timeoutPair.left()) / 2;
+		ImmutableList<Move> moves = board.getAvailableMoves().asList();
+		if (moves.get(0).commencedBy().isMrX()) return moves.get(random.nextInt(moves.size()));
+		Map<Piece, Integer> locations = new LinkedHashMap<>();
+		for (Piece piece : board.getPlayers())
+			if (piece.isDetective())
+				locations.put(piece, board.getDetectiveLocation((Piece.Detective) piece).orElseThrow());
+		LocationSet occupied = LocationSet.of(locations.values());
+		// a shorter log than already followed is a new game
+		if (belief == null || belief.followed() > board.getMrXTravelLog().size())
+			belief = new MrXBelief(board.getSetup(), occupied);
+		// this model's game states keep where MrX could be up to date themselves
+		if (board instanceof Board.GameState)
+			belief.update(((Board.GameState) board).getMrXPossibleLocations(), board.getMrXTravelLog().size(), occupied);
+		else belief.update(board.getMrXTravelLog(), occupied);
+
+		// the detectives still to move and their moves
+		Map<Piece, List<Move.SingleMove>> movers = new LinkedHashMap<>();
+		for (Move move : moves)
+			movers.computeIfAbsent(move.commencedBy(), piece -> new ArrayList<>()).add((Move.SingleMove) move);
+		List<Integer> moved = new ArrayList<>();
+		// each detective's distances, for the tickets it holds, in the order of the plan's positions
+		List<DistanceOracle> oracles = new ArrayList<>();
+		var distances = TicketDistances.of(board.getSetup().graph);
+		for (Piece piece : movers.keySet())
+			oracles.add(distances.oracle(board.getPlayerTickets(piece).map(TicketDistances::mask).orElse(0)));
+		for (Map.Entry<Piece, Integer> entry : locations.entrySet()) {
+			if (movers.containsKey(entry.getKey())) continue;
+			moved.add(entry.getValue());
+			oracles.add(distances.oracle(board.getPlayerTickets(entry.getKey()).map(TicketDistances::mask).orElse(0)));
+		}
+		Plan plan = new Plan(belief, new ArrayList<>(movers.values()), moved, oracles);
+		for (int pass = 0; pass < PASSES && System.nanoTime() < deadline; pass++)
+			if (!plan.improve()) break;
+		return plan.next();
+	}
+
+	// A move for each detective still to move
+	private static final class Plan {
+		final MrXBelief belief;
+		final DistanceOracle[] oracles;
+		final int[] possible;
+		final int[] next;
+		final List<List<Move.SingleMove>> moves;
+		final Move.SingleMove[] chosen;
+		// where each detective still to move is planned to go, then where the others are
+		final int[] positions;
+
+		Plan(MrXBelief belief, List<List<Move.SingleMove>> moves, List<Integer> moved, List<DistanceOracle> oracles) {
+			this.belief = belief;
+			this.oracles = oracles.toArray(new DistanceOracle[0]);
+			this.possible = belief.nodes();
+			this.next = belief.nextNodes();
+			this.moves = moves;
+			this.chosen = new Move.SingleMove[moves.size()];
+			this.positions = new int[moves.size() + moved.size()];
+			// until planned, a detective counts as staying where it is
+			for (int i = 0; i < moves.size(); i++) positions[i] = moves.get(i).get(0).source();
+			for (int i = 0; i < moved.size(); i++) positions[moves.size() + i] = moved.get(i);
+		}
+
+		/**
+		 * Gives each detective still to move its best move given where the others are planned to go
+		 *
+		 * @return whether any detective's move changed
+		 */
+		boolean improve() {
+			boolean changed = false;
+			for (int i = 0; i < chosen.length; i++) {
+				Move.SingleMove best = null;
+				double bestCost = Double.POSITIVE_INFINITY;
+				for (Move.SingleMove move : moves.get(i)) {
+					if (taken(move.destination, i)) continue;
+					positions[i] = move.destination;
+					double cost = cost();
+					// for the same node, use taxis before buses before the scarce underground tickets
+					if (cost < bestCost || best != null && move.destination == best.destination
+							&& move.ticket.ordinal() < best.ticket.ordinal()) {
+						bestCost = cost;
+						best = move;
+					}
+				}
+				// every node is planned for another detective; any move is still legal now
+				if (best == null) best = moves.get(i).get(0);
+				positions[i] = best.destination;
+				changed |= !best.equals(chosen[i]);
+				chosen[i] = best;
+			}
+			return changed;
+		}
+
+		private boolean taken(int node, int detective) {
+			for (int i = 0; i < positions.length; i++)
+				if (i != detective && positions[i] == node) return true;
+			return false;
+		}
+
+		// Average distance from MrX's next possible nodes to the nearest detective, less the chance
+		// of catching him now
+		private double cost() {
+			double distance = 0;
+			for (int node : next) {
+				int nearest = MAX_DISTANCE;
+				for (int i = 0; i < positions.length; i++)
+					nearest = Math.min(nearest, oracles[i].distance(positions[i], node));
+				distance += nearest;
+			}
+			int catches = 0;
+			for (int position : positions) if (belief.contains(position)) catches++;
+			return (next.length == 0 ? 0 : distance / next.length)
+					- (possible.length == 0 ? 0 : CATCH * catches / possible.length);
+		}
+
+		/**
+		 * @return the planned move most likely to catch MrX, else the first detective's
+		 */
+		Move next() {
+			if (chosen[0] == null) improve();
+			for (Move.SingleMove move : chosen) if (belief.contains(move.destination)) return move;
+			return chosen[0];
+		}
+	}
+}
@@ -1,8 +1,10 @@
 package uk.ac.bris.cs.scotlandyard.ui.ai;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
 
@@ -15,34 +17,98 @@ import uk.ac.bris.cs.scotlandyard.model.*;
 
 public class JarvisX implements Ai {
 
+	// Time kept free of the pickMove budget for picking the move and returning it
+	private static final long SAFETY_MARGIN = TimeUnit.MILLISECONDS.toNanos(750);
+	// The clock is only read once every CHECK_INTERVAL + 1 nodes
+	private static final int CHECK_INTERVAL = 0x3FF;
+	// Search depths are odd so every search ends on Jarvis X's move, see maximiser()
+	private static final int MAX_DEPTH = 21;
+	// Distances are capped here, so a detective that can't reach a node at all counts as far away
+	// rather than overflowing the score; longer than any path on the standard map, 20 by taxi alone
+	private static final int MAX_DISTANCE = 24;
+
+	// Threads searching Jarvis X's locations at the root; 1 searches on the calling thread only
+	private final int parallelism;
+	// Deepest search iterativeDeepening() starts, at most MAX_DEPTH
+	private final int maxDepth;
+	private ForkJoinPool pool;
+
 	private ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>> map;
-	private long timeLimit;
-	private long startTime;
+	// System.nanoTime() by which the search has to stop
+	private long deadline;
+	// Nodes searched by each thread, see timeUp()
+	private final ThreadLocal<long[]> nodes = ThreadLocal.withInitial(() -> new long[1]);
+	// Set once the deadline passes; the search that was running is abandoned
+	private volatile boolean outOfTime;
+	// Best location of the last completed search, tried first by the next deeper one
+	private int rootHint;
+
+	// Scores of positions already searched, kept across moves as the key holds everything a score
+	// depends on, see positionKey()
+	private final TranspositionTable table = new TranspositionTable(20);
+
+	// Distances for a player holding the detectives' tickets, see search()
+	private DistanceOracle distances;
+	// The TicketDistances#mask of the tickets the detectives hold, see search()
+	private int detectiveTickets;
+
+	/**
+	 * Creates Jarvis X with the parallelism given by the jarvisx.parallelism system property,
+	 * defaulting to the number of available processors
+	 */
+	public JarvisX() {
+		this(Integer.getInteger("jarvisx.parallelism", Runtime.getRuntime().availableProcessors()));
+	}
 
-	// HashMap of distances to each node in the map for a given Jarvis X location
-	private static HashMap<Integer, List<Integer>> distancesMap;
+	/**
+	 * @param parallelism the number of threads searching in parallel
+	 */
+	public JarvisX(int parallelism) {
+		this(parallelism, MAX_DEPTH);
+	}
 
-	{
-		distancesMap = new HashMap<>();
+	/**
+	 * Creates Jarvis X that stops deepening at the given depth even if there is time left, so a
+	 * search with a long enough timeout does the same work on every run
+	 *
+	 * @param parallelism the number of threads searching in parallel
+	 * @param maxDepth the deepest search, an odd number from 1 to 21
+	 */
+	public JarvisX(int parallelism, int maxDepth) {
+		if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		if (maxDepth < 1 || maxDepth > MAX_DEPTH || maxDepth % 2 == 0)
+			throw new IllegalArgumentException("Bad max depth: " + maxDepth);
+		this.parallelism = parallelism;
+		this.maxDepth = maxDepth;
 	}
 
 	@Nonnull @Override public String name() { return "Jarvis X"; }
 
+	@Override public void onTerminate() {
+		if (pool != null) pool.shutdownNow();
+		pool = null;
+	}
+
 	@Nonnull @Override public Move pickMove(
 			@Nonnull Board board,
 			Pair<Long, TimeUnit> timeoutPair) {
-		this.timeLimit = timeoutPair.left() * 1000;
-		this.startTime = System.currentTimeMillis();
-		this.map = board.getSetup().graph;
+		long budget = timeoutPair.right().toNanos(timeoutPair.left());
 		int doubleTickets = board.getPlayerTickets(Piece.MrX.MRX).get().getCount(ScotlandYard.Ticket.DOUBLE);
 		ImmutableList<Move> moves = board.getAvailableMoves().asList();
-		List<Integer> occupied = getDetectiveLocations(board);
+		LocationSet occupied = getDetectiveLocations(board);
+		int detectiveTickets = getDetectiveTickets(board);
 		HashMap<Move, Integer> singleMoves = new HashMap<>();
 		HashMap<Move, Integer> doubleMoves = new HashMap<>();
 		int source = extractMoveInfo(moves, singleMoves, doubleMoves);
-		int maxDepth = 5;
-		Pair<Integer, Integer> bestPair = maximiser(source, occupied, 1, maxDepth, Integer.MIN_VALUE, Integer.MAX_VALUE, doubleTickets);
-		int bestLocation = bestPair.left();
+		// The opening book answers Jarvis X's first move from the usual starting positions as a search
+		// to the book's depth would, so only deeper searches are left to run
+		OpeningBook book = OpeningBook.standard();
+		int known = board.getMrXTravelLog().isEmpty()
+				? book.lookup(board.getSetup(), source, occupied, doubleTickets, detectiveTickets)
+				: 0;
+		if (!singleMoves.containsValue(known) && !doubleMoves.containsValue(known)) known = 0;
+		int bestLocation = search(board.getSetup().graph, source, occupied, doubleTickets, detectiveTickets,
+				budget, known, known != 0 ? book.depth() : 0);
 		List<Move> bestMoves = new ArrayList<>();
 		// Find all the single moves that go to the best location
 		for (Map.Entry<Move, Integer> move : singleMoves.entrySet() ) {
@@ -59,6 +125,66 @@ public class JarvisX implements Ai {
 	}
 
 
+	/**
+	 * Searches for the best location to move to, as {@link #pickMove(Board, Pair)} does
+	 *
+	 * @param map the game graph
+	 * @param source where Jarvis X is
+	 * @param occupied where the detectives are
+	 * @param doubleTickets the double move tickets Jarvis X has
+	 * @param detectiveTickets the {@link TicketDistances#mask} of the tickets the detectives hold
+	 * @param budget the time the search may take, in nanoseconds
+	 * @return the best location to move to
+	 */
+	int search(ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>> map,
+	           int source, LocationSet occupied, int doubleTickets, int detectiveTickets, long budget) {
+		return search(map, source, occupied, doubleTickets, detectiveTickets, budget, 0, 0);
+	}
+
+	/**
+	 * Searches as {@link #search(ImmutableValueGraph, int, LocationSet, int, int, long)} does, but
+	 * from a location already known to be the best of a search to the given depth, so only deeper
+	 * searches are run; the known location is returned if none of them completes
+	 *
+	 * @param known the best location of a search to knownDepth, or 0 if there is none
+	 * @param knownDepth the depth known was searched to, 0 if there is none
+	 */
+	int search(ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>> map,
+	           int source, LocationSet occupied, int doubleTickets, int detectiveTickets, long budget,
+	           int known, int knownDepth) {
+		this.deadline = System.nanoTime() + budget - Math.min(SAFETY_MARGIN, budget / 4);
+		this.outOfTime = false;
+		if (parallelism > 1 && pool == null) pool = new ForkJoinPool(parallelism);
+		this.table.newSearch();
+		this.map = map;
+		this.distances = TicketDistances.of(map).oracle(detectiveTickets);
+		this.detectiveTickets = detectiveTickets;
+		return iterativeDeepening(source, occupied, doubleTickets, known, knownDepth);
+	}
+
+
+	// Searches one round deeper at a time and returns the best location of the deepest search that completed;
+	// a deeper search is only started if it is expected to finish before the deadline
+	private int iterativeDeepening(int source, LocationSet occupied, int doubleTickets, int known, int knownDepth) {
+		int bestLocation = known;
+		long previous = 0;
+		for (int depth = known != 0 ? knownDepth + 2 : 1; depth <= maxDepth; depth += 2) {
+			long start = System.nanoTime();
+			this.rootHint = bestLocation;
+			Pair<Integer, Integer> bestPair = maximiser(source, occupied, 1, depth, Integer.MIN_VALUE, Integer.MAX_VALUE, doubleTickets);
+			// Only an abandoned first search is used, as there is nothing better to fall back on
+			if (outOfTime && bestLocation != 0) break;
+			bestLocation = bestPair.left();
+			long elapsed = System.nanoTime() - start;
+			// Each depth takes at least twice as long as the last, more if the search is growing faster
+			long growth = previous == 0 ? 2 : Math.max(2, elapsed / Math.max(1, previous));
+			if (outOfTime || System.nanoTime() + elapsed * growth > deadline) break;
+			previous = elapsed;
+		}
+		return bestLocation;
+	}
+
+
 	// Iterates through Jarvis X's moves, keeps track of available locations to move to
 	// and returns Jarvis X's current location
 	private int extractMoveInfo(ImmutableList<Move> moves, HashMap<Move, Integer> singleMoves, HashMap<Move, Integer> doubleMoves) {
@@ -92,7 +218,53 @@ public class JarvisX implements Ai {
 	}
 
 
-	private Pair<Integer, Integer> maximiser(Integer jarvisXLocation, List<Integer> detectiveLocations, int depth, int maxDepth, int alpha, int beta, int doubleTickets) {
+	// Hashes a search position; detectives are interchangeable in the search so their locations are
+	// combined in an order-independent way, which lets different combination orders share entries
+	// The detectives' tickets are part of the key, as they decide the distances a position is scored with
+	private long positionKey(int jarvisXLocation, LocationSet detectiveLocations, int doubleTickets, boolean detectivesToMove) {
+		long key = TranspositionTable.mix(jarvisXLocation | (long) doubleTickets << 16
+				| (detectivesToMove ? 1L << 24 : 0) | (long) detectiveTickets << 25);
+		for (int location : detectiveLocations.toArray()) key += TranspositionTable.mix(location | 1L << 32);
+		return key;
+	}
+
+	// Returns the stored score if it settles the position for the given window, null otherwise
+	// Scores accumulate capture penalties per level, so only entries searched to the same depth are used
+	private static Integer storedScore(long entry, int remainingDepth, int alpha, int beta) {
+		if (entry == 0 || TranspositionTable.depth(entry) != remainingDepth) return null;
+		int score = TranspositionTable.score(entry);
+		switch (TranspositionTable.bound(entry)) {
+			case TranspositionTable.EXACT: return score;
+			case TranspositionTable.LOWER: return score >= beta ? score : null;
+			case TranspositionTable.UPPER: return score <= alpha ? score : null;
+			default: return null;
+		}
+	}
+
+	private void store(long key, int remainingDepth, int alpha, int beta, int score, int location) {
+		if (outOfTime) return;
+		int bound = score <= alpha ? TranspositionTable.UPPER
+				: score >= beta ? TranspositionTable.LOWER
+				: TranspositionTable.EXACT;
+		table.store(key, remainingDepth, bound, score, location);
+	}
+
+	// Counts a node and checks whether the deadline has passed, only reading the clock every so often
+	private boolean timeUp() {
+		if (!outOfTime && (++nodes.get()[0] & CHECK_INTERVAL) == 0 && System.nanoTime() > deadline) outOfTime = true;
+		return outOfTime;
+	}
+
+	private Pair<Integer, Integer> maximiser(Integer jarvisXLocation, LocationSet detectiveLocations, int depth, int maxDepth, int alpha, int beta, int doubleTickets) {
+		final int alphaStart = alpha;
+		final int remainingDepth = maxDepth - depth;
+		final long key = positionKey(jarvisXLocation, detectiveLocations, doubleTickets, false);
+		// The root always searches every location, so it is never cut off or stored
+		final long entry = depth != 1 ? table.probe(key) : 0;
+		if (entry != 0) {
+			Integer stored = storedScore(entry, remainingDepth, alpha, beta);
+			if (stored != null) return new Pair<>(TranspositionTable.location(entry), stored);
+		}
 		Set<Integer> singleLocations = map.adjacentNodes(jarvisXLocation);
 		Set<Integer> doubleLocations = new HashSet<>();
 		Set<Integer> locations;
@@ -114,6 +286,17 @@ public class JarvisX implements Ai {
 			}
 			locations.addAll(doubleLocations);
 		}
+		// Try the best location of an earlier search of this position first
+		int hint = depth == 1 ? rootHint : TranspositionTable.location(entry);
+		if (hint != 0 && locations.contains(hint)) {
+			Set<Integer> ordered = new LinkedHashSet<>();
+			ordered.add(hint);
+			ordered.addAll(locations);
+			locations = ordered;
+		}
+		if (depth == 1 && depth != maxDepth && pool != null) {
+			return parallelRoot(jarvisXLocation, detectiveLocations, locations, doubleLocations, maxDepth, doubleTickets);
+		}
 		int maxScore = Integer.MIN_VALUE;
 		int bestLocation = 0;
 		int score;
@@ -135,24 +318,69 @@ public class JarvisX implements Ai {
 				}
 				if (score > alpha) alpha = score;
 				if (beta <= alpha) {
+					if (depth != 1) store(key, remainingDepth, alphaStart, beta, maxScore, bestLocation);
 					return new Pair<>(bestLocation, maxScore);
 				}
-				// If time passed is close to the limit, then short circuit - return best move seen so far
-				if (System.currentTimeMillis() - this.startTime > (this.timeLimit - 750)) {
+				// If the deadline has passed, give up; the unfinished search is discarded by iterativeDeepening()
+				if (timeUp()) {
 					return new Pair<>(bestLocation, maxScore);
 				}
 			}
 		}
+		if (depth != 1) store(key, remainingDepth, alphaStart, beta, maxScore, bestLocation);
 		Pair<Integer, Integer> bestMove = new Pair<>(bestLocation, maxScore);
 		return bestMove;
 	}
 
+	// Searches the root locations in parallel, young brothers wait style: the first location is searched alone to
+	// get a bound, then the others are searched on the pool, each starting from the best score found so far
+	private Pair<Integer, Integer> parallelRoot(Integer jarvisXLocation, LocationSet detectiveLocations, Set<Integer> locations,
+	                                            Set<Integer> doubleLocations, int maxDepth, int doubleTickets) {
+		List<Integer> candidates = new ArrayList<>();
+		for (Integer location : locations) {
+			// If the immediate location to Jarvis X is occupied by a detective do not consider it
+			if (!detectiveLocations.contains(location)) candidates.add(location);
+		}
+		if (candidates.isEmpty()) return new Pair<>(0, Integer.MIN_VALUE);
+		int[] scores = new int[candidates.size()];
+		// A search that fails low only gives an upper bound, so it can't be the best location
+		boolean[] exact = new boolean[candidates.size()];
+		AtomicInteger alpha = new AtomicInteger(Integer.MIN_VALUE);
+		searchRootLocation(0, candidates, scores, exact, alpha, detectiveLocations, doubleLocations, maxDepth, doubleTickets);
+		List<ForkJoinTask<?>> tasks = new ArrayList<>();
+		for (int i = 1; i < candidates.size() && !outOfTime; i++) {
+			final int index = i;
+			tasks.add(pool.submit(() -> searchRootLocation(index, candidates, scores, exact, alpha,
+					detectiveLocations, doubleLocations, maxDepth, doubleTickets)));
+		}
+		for (ForkJoinTask<?> task : tasks) task.join();
+		int best = 0;
+		for (int i = 1; i < candidates.size(); i++) {
+			if (exact[i] && scores[i] > scores[best]) best = i;
+		}
+		return new Pair<>(candidates.get(best), scores[best]);
+	}
+
+	private void searchRootLocation(int index, List<Integer> candidates, int[] scores, boolean[] exact, AtomicInteger alpha,
+	                                LocationSet detectiveLocations, Set<Integer> doubleLocations, int maxDepth, int doubleTickets) {
+		if (outOfTime) return;
+		Integer location = candidates.get(index);
+		int newDoubleTickets = doubleTickets;
+		// If a double ticket was used, decrement the count the next subtree
+		if (doubleLocations.contains(location)) newDoubleTickets -= 1;
+		int bound = alpha.get();
+		int score = minimiser(location, detectiveLocations, 2, maxDepth, bound, Integer.MAX_VALUE, newDoubleTickets);
+		scores[index] = score;
+		exact[index] = bound == Integer.MIN_VALUE || score > bound;
+		alpha.accumulateAndGet(score, Math::max);
+	}
+
 	// Sorts the immediate locations to Jarvis X in order of score descending
-	private TreeSet<Integer> jarvisXLocationPriority(List<Integer> detectiveLocations, Set<Integer> locations) {
+	private TreeSet<Integer> jarvisXLocationPriority(LocationSet detectiveLocations, Set<Integer> locations) {
 		TreeSet<Integer> sortedSet = new TreeSet<>(new Comparator<Integer>() {
-			private List<Integer> detectiveLocations;
+			private LocationSet detectiveLocations;
 
-			public Comparator<Integer> initialise(List<Integer> detectives) {
+			public Comparator<Integer> initialise(LocationSet detectives) {
 				this.detectiveLocations = detectives;
 				return this;
 			}
@@ -161,9 +389,9 @@ public class JarvisX implements Ai {
 			public int compare(Integer location1, Integer location2) {
 				int score1 = score(location1, detectiveLocations);
 				int score2 = score(location2, detectiveLocations);
-				if (score1 == Integer.MIN_VALUE) score1 = -10000;
-				if (score2 == Integer.MIN_VALUE) score2 = -10000;
-				return  -1 * (score1 - score2);
+				// Locations with the same score are ordered by number, so the set keeps all of them
+				int order = Integer.compare(score2, score1);
+				return order != 0 ? order : Integer.compare(location1, location2);
 			}
 		}.initialise(detectiveLocations));
 		sortedSet.addAll(locations);
@@ -171,11 +399,16 @@ public class JarvisX implements Ai {
 	}
 
 
-	private int minimiser(Integer jarvisXLocation, List<Integer> detectiveLocations, int depth, int maxDepth, int alpha, int beta, int doubleTickets) {
-		List<List<Integer>> combinations = findCombinations(detectiveLocations, jarvisXLocation);
+	private int minimiser(Integer jarvisXLocation, LocationSet detectiveLocations, int depth, int maxDepth, int alpha, int beta, int doubleTickets) {
+		final int betaStart = beta;
+		final int remainingDepth = maxDepth - depth;
+		final long key = positionKey(jarvisXLocation, detectiveLocations, doubleTickets, true);
+		Integer stored = storedScore(table.probe(key), remainingDepth, alpha, beta);
+		if (stored != null) return stored;
+		List<LocationSet> combinations = findCombinations(detectiveLocations, jarvisXLocation);
 		int minScore = Integer.MAX_VALUE;
 		int score;
-		for (List<Integer> combination : combinations) {
+		for (LocationSet combination : combinations) {
 			score = maximiser(jarvisXLocation, combination, depth +1, maxDepth, alpha, beta, doubleTickets).right();
 			if (combination.contains(jarvisXLocation)) {
 				// Decrement the score if detectives can catch Jarvis X in their future moves
@@ -186,13 +419,15 @@ public class JarvisX implements Ai {
 			}
 			if (score < beta) beta = score;
 			if (beta <= alpha) {
+				store(key, remainingDepth, alpha, betaStart, minScore, 0);
 				return minScore;
 			}
-			// If time passed is close to the limit, then short circuit - return best move seen so far
-			if (System.currentTimeMillis() - this.startTime > (this.timeLimit - 750)) {
+			// If the deadline has passed, give up; the unfinished search is discarded by iterativeDeepening()
+			if (timeUp()) {
 				return minScore;
 			}
 		}
+		store(key, remainingDepth, alpha, betaStart, minScore, 0);
 		return minScore;
 	}
 
@@ -214,9 +449,9 @@ public class JarvisX implements Ai {
 
 
 	// Finds the possible combinations of how detectives can move in the next round, disregarding bad moves
-	private List<List<Integer>> findCombinations(List<Integer> detectiveLocations, Integer jarvisXLocation){
+	private List<LocationSet> findCombinations(LocationSet detectiveLocations, Integer jarvisXLocation){
 		List<List<Integer>> combinations = new ArrayList<>();
-		for (Integer location : detectiveLocations) {
+		for (int location : detectiveLocations.toArray()) {
 			Set<Integer> adjacent = map.adjacentNodes(location);
 			adjacent = reduceCombinations(location, adjacent, jarvisXLocation);
 			List<List<Integer>> newCombinations = new ArrayList<>();
@@ -234,12 +469,16 @@ public class JarvisX implements Ai {
 			}
 			combinations = newCombinations;
 		}
-		return combinations;
+		// Detectives moving onto the same node count once, so the median can be over fewer detectives
+		List<LocationSet> occupancies = new ArrayList<>();
+		for (List<Integer> combination : combinations) occupancies.add(LocationSet.of(combination));
+		return occupancies;
 	}
 
 
-	// Returns the list of nodes occupied by the detectives
-	private List<Integer> getDetectiveLocations(Board board) {
+	// Returns the nodes occupied by the detectives; game states already keep them as a bitset
+	private LocationSet getDetectiveLocations(Board board) {
+		if (board instanceof Board.GameState) return ((Board.GameState) board).getDetectiveOccupancy();
 		ImmutableSet<Piece> players = board.getPlayers();
 		List<Integer> occupied = new ArrayList<>();
 		for (Piece player : players) {
@@ -249,12 +488,23 @@ public class JarvisX implements Ai {
 				if (detectiveLocation.isPresent()) occupied.add(detectiveLocation.get());
 			}
 		}
-		return occupied;
+		return LocationSet.of(occupied);
+	}
+
+
+	// Returns the tickets any detective holds, so distances only take transports detectives still can
+	private int getDetectiveTickets(Board board) {
+		int tickets = 0;
+		for (Piece player : board.getPlayers()) {
+			if (player.isDetective())
+				tickets |= board.getPlayerTickets(player).map(TicketDistances::mask).orElse(0);
+		}
+		return tickets;
 	}
 
 
 	// Returns the score given a location
-	private int score(int location, List<Integer> occupied) {
+	private int score(int location, LocationSet occupied) {
 		// Checks if the given node would be occupied
 		if (occupied.contains(location)) return Integer.MIN_VALUE;
 		int score = 0;
@@ -273,78 +523,19 @@ public class JarvisX implements Ai {
 
 	// Finds the distance from Jarvis X to the given detective
 	private int singleDetectiveDistance(int source, int detective) {
-		int distance;
-		if (distancesMap.containsKey(source)) {
-			distance = distancesMap.get(source).get(detective);
-		}
-		else {
-			distancesMap.put(source, findDistances(source));
-			distance = distancesMap.get(source).get(detective);
-		}
-		return distance;
+		return Math.min(distances.distance(source, detective), MAX_DISTANCE);
 	}
 
 
 	// Returns the median distance to all detectives from the current Jarvis X location
-	private double medianDetectiveDistance(int source, List<Integer> occupied) {
-		List<Integer> distances;
-		if (distancesMap.containsKey(source)) {
-			distances = distancesMap.get(source);
-		}
-		else {
-			distances = findDistances(source);
-			distancesMap.put(source, distances);
-		}
-		List<Integer> detectiveDistances = new ArrayList<>();
-		for (Integer detectiveLocation : occupied) {
-			detectiveDistances.add(distances.get(detectiveLocation));
-		}
+	private double medianDetectiveDistance(int source, LocationSet occupied) {
+		int[] detectiveDistances = occupied.toArray();
+		for (int i = 0; i < detectiveDistances.length; i++)
+			detectiveDistances[i] = singleDetectiveDistance(source, detectiveDistances[i]);
 		// Sort the detective distances to find the median
-		detectiveDistances = detectiveDistances.stream().sorted((x, y) -> x - y).collect(Collectors.toList());
-		double median;
-		if (detectiveDistances.size() % 2 == 1) median = detectiveDistances.get(Math.floorDiv(detectiveDistances.size(), 2));
-		else {
-			double mid1 = detectiveDistances.get(Math.floorDiv(detectiveDistances.size(), 2));
-			double mid2 = detectiveDistances.get(Math.floorDiv(detectiveDistances.size(), 2) + 1);
-			median = (mid1 + mid2) / 2;
-		}
-		return median;
-	}
-
-
-	// Dijkstra's Shortest Path
-	// Calculates the distance to every node from the given source node
-	private List<Integer> findDistances(int source) {
-		HashSet<Integer> visited = new HashSet<>();
-		List<Integer> distances = new ArrayList<>();
-		// Initialise distance to all nodes to infinity
-		for (int i = 0; i < 200; i++) {
-			distances.add(Integer.MAX_VALUE);
-		}
-		distances.set(source, 0);
-		// Finds the shortest path to every node in the map from the given source
-		while (visited.size() != map.nodes().size()) {
-			for (Integer location : map.adjacentNodes(source)) {
-				if (distances.get(source) + 1 < distances.get(location)) {
-					distances.set(location, distances.get(source) + 1);
-				}
-			}
-			visited.add(source);
-			source = topOfPriorityQueue(distances, visited);
-		}
-		return distances;
-	}
-
-
-	// Returns the closest node to the given source node which has not been checked yet
-	private int topOfPriorityQueue(List<Integer> distances, HashSet<Integer> visited) {
-		int min = Integer.MAX_VALUE;
-		int top = -1;
-		for (int i = 1; i < distances.size(); i++) {
-			if (distances.get(i) < min && !visited.contains(i)) {
-				top = i;
-			}
-		}
-		return top;
+		Arrays.sort(detectiveDistances);
+		int middle = detectiveDistances.length / 2;
+		if (detectiveDistances.length % 2 == 1) return detectiveDistances[middle];
+		return ((double) detectiveDistances[middle - 1] + detectiveDistances[middle]) / 2;
 	}
 }
@@ -0,0 +1,208 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.collect.ImmutableList;
+import io.atlassian.fugue.Pair;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MoveCode;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * MrX Ai using Monte Carlo tree search (UCT).
+ * <br>
+ * The tree only has MrX's decisions: each of MrX's moves leads to a chance node whose children are
+ * the positions the detectives' round led to, sampled by {@link SimulatedGame#playDetectives}.
+ * Positions are expanded one per iteration and played out to the end of the game with
+ * {@link SimulatedGame#playOut}. The tree is searched until the time is nearly up, and the part
+ * below the position the game actually reached is kept for the next move.
+ * <br>
+ * Only plays MrX; on the detectives' turn it picks a random move.
+ */
+public class MonteCarloX implements Ai {
+
+	// Time kept free of the pickMove budget for picking the move and returning it
+	private static final long SAFETY_MARGIN = TimeUnit.MILLISECONDS.toNanos(750);
+	// UCT exploration constant for wins in [0, 1]
+	private static final double EXPLORATION = 0.7;
+	// A position with n visits searches its best 1 + WIDENING * sqrt(n) moves, see Node.select()
+	private static final double WIDENING = 1.5;
+	// Positions stop being added to the tree past this many, playouts carry on
+	private static final int MAX_NODES = 500_000;
+
+	private final SplittableRandom random = new SplittableRandom();
+	// Kept between moves for reusing the tree
+	private Node root;
+	private Edge played;
+	private int nodes;
+
+	// A position on MrX's turn
+	private static final class Node {
+		final long key;
+		// MrX's moves, best first by prior(); null until the node is searched from
+		long[] moves;
+		Edge[] edges;
+		int expanded;
+		int visits;
+
+		Node(long key) { this.key = key; }
+
+		Edge select() {
+			int widened = Math.min(moves.length, 1 + (int) (WIDENING * Math.sqrt(visits)));
+			// moves are tried in order of their prior before any is revisited
+			if (expanded < widened) {
+				Edge edge = new Edge(moves[expanded]);
+				edges[expanded++] = edge;
+				return edge;
+			}
+			Edge best = null;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			double logVisits = Math.log(visits);
+			for (int i = 0; i < expanded; i++) {
+				Edge edge = edges[i];
+				double value = edge.wins / edge.visits + EXPLORATION * Math.sqrt(logVisits / edge.visits);
+				if (value > bestValue) {
+					bestValue = value;
+					best = edge;
+				}
+			}
+			return best;
+		}
+	}
+
+	// One of MrX's moves from a position
+	private static final class Edge {
+		final long move;
+		int visits;
+		double wins;
+		// positions after the detectives' round, by SimulatedGame.key()
+		final Map<Long, Node> outcomes = new HashMap<>(4);
+
+		Edge(long move) { this.move = move; }
+	}
+
+	@Nonnull @Override public String name() { return "Monte Carlo X"; }
+
+	@Override public void onStart() {
+		root = null;
+		played = null;
+		nodes = 0;
+	}
+
+	@Nonnull @Override public Move pickMove(
+			@Nonnull Board board,
+			Pair<Long, TimeUnit> timeoutPair) {
+		long budget = timeoutPair.right().toNanos(timeoutPair.left());
+		long deadline = System.nanoTime() + budget - Math.min(SAFETY_MARGIN, budget / 4);
+		ImmutableList<Move> moves = board.getAvailableMoves().asList();
+		if (!moves.get(0).commencedBy().isMrX()) return moves.get(random.nextInt(moves.size()));
+		SimulatedGame start = SimulatedGame.of(board, moves.get(0).source());
+		Map<Long, Move> byCode = new HashMap<>();
+		for (Move move : moves) byCode.put(MoveCode.of(move), move);
+
+		root = reusedRoot(start.key());
+		if (root == null) root = new Node(start.key());
+		nodes = count(root);
+		if (root.moves == null) expand(root, start);
+
+		SimulatedGame game = start.copy();
+		List<Node> path = new ArrayList<>();
+		List<Edge> edges = new ArrayList<>();
+		// a single move is enough to play a valid move, so at least one playout is always done
+		do search(start, game, path, edges);
+		while (System.nanoTime() < deadline);
+
+		Edge best = null;
+		for (int i = 0; i < root.expanded; i++)
+			if (best == null || root.edges[i].visits > best.visits) best = root.edges[i];
+		played = best;
+		Move move = best == null ? null : byCode.get(best.move);
+		// the simulation makes the same moves as the board, but never play an illegal one
+		return move != null ? move : moves.get(random.nextInt(moves.size()));
+	}
+
+	// The node the game reached after the move played last time, if that position was searched
+	private Node reusedRoot(long key) {
+		if (played == null) return null;
+		Node node = played.outcomes.get(key);
+		played = null;
+		return node != null && node.key == key ? node : null;
+	}
+
+	private static int count(Node node) {
+		int count = 1;
+		for (int i = 0; i < node.expanded; i++)
+			for (Node child : node.edges[i].outcomes.values()) count += count(child);
+		return count;
+	}
+
+	// Searches once from the root: selects down the tree, adds a position and plays it out
+	private void search(SimulatedGame start, SimulatedGame game, List<Node> path, List<Edge> edges) {
+		game.copyFrom(start);
+		path.clear();
+		edges.clear();
+		Node node = root;
+		int winner;
+		while (true) {
+			if (node.moves == null) expand(node, game);
+			Edge edge = node.select();
+			path.add(node);
+			edges.add(edge);
+			game.playMrX(edge.move);
+			game.playDetectives(random);
+			if (game.winner() != SimulatedGame.NONE) {
+				winner = game.winner();
+				break;
+			}
+			long key = game.key();
+			Node child = edge.outcomes.get(key);
+			if (child == null) {
+				if (nodes < MAX_NODES) {
+					edge.outcomes.put(key, new Node(key));
+					nodes++;
+				}
+				winner = game.playOut(random);
+				break;
+			}
+			node = child;
+		}
+		double reward = winner == SimulatedGame.MRX ? 1 : 0;
+		for (int i = 0; i < path.size(); i++) {
+			path.get(i).visits++;
+			edges.get(i).visits++;
+			edges.get(i).wins += reward;
+		}
+	}
+
+	// Lists the moves of a position for searching, best first
+	private void expand(Node node, SimulatedGame game) {
+		SimulatedGame.LongList list = new SimulatedGame.LongList();
+		game.mrXMoves(list);
+		long[] ordered = new long[list.size()];
+		for (int i = 0; i < ordered.length; i++)
+			ordered[i] = (long) -prior(game, list.get(i)) << 32 | i;
+		Arrays.sort(ordered);
+		node.moves = new long[ordered.length];
+		for (int i = 0; i < ordered.length; i++) node.moves[i] = list.get((int) ordered[i]);
+		node.edges = new Edge[ordered.length];
+	}
+
+	// How promising a move looks before it is searched: away from the detectives, saving double
+	// moves and secret tickets
+	private static int prior(SimulatedGame game, long move) {
+		int score = 4 * Math.min(game.nearestDetective(MoveCode.destination(move)), 8);
+		if (MoveCode.isDouble(move)) score -= 16;
+		if (MoveCode.ticket(move) == Ticket.SECRET || MoveCode.ticket1(move) == Ticket.SECRET) score -= 2;
+		return score;
+	}
+}
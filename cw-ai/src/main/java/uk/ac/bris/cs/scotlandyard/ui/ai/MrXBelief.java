@@ -0,0 +1,88 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.List;
+
+import uk.ac.bris.cs.scotlandyard.model.CompactGraph;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.LocationSet;
+import uk.ac.bris.cs.scotlandyard.model.LogEntry;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * The nodes MrX could be on as the detectives see it, kept the way the model's game states keep
+ * {@link uk.ac.bris.cs.scotlandyard.model.Board.GameState#getMrXPossibleLocations()}.
+ * <br>
+ * It starts from {@link LocationSet#start}, each entry of MrX's travel log is followed with
+ * {@link LocationSet#follow(CompactGraph, LogEntry, LocationSet)} around the nodes the detectives
+ * were on when it was seen, and nodes detectives land on are removed. Boards only say where the
+ * detectives are now, so the belief has to be updated on every detective's turn to match the
+ * model's.
+ */
+final class MrXBelief {
+
+	private final CompactGraph graph;
+	private LocationSet possible;
+	// where the detectives were at the last update
+	private LocationSet occupied;
+	// travel log entries already followed
+	private int followed;
+
+	/**
+	 * @param setup the game setup
+	 * @param detectives where the detectives start
+	 */
+	MrXBelief(GameSetup setup, LocationSet detectives) {
+		this.graph = setup.compactGraph();
+		this.possible = LocationSet.start(setup, detectives);
+		this.occupied = detectives;
+	}
+
+	/**
+	 * Follows the travel log entries not followed yet, then removes the detectives' nodes
+	 *
+	 * @param log MrX's travel log
+	 * @param detectives where the detectives are
+	 */
+	void update(List<LogEntry> log, LocationSet detectives) {
+		// Detectives that moved since MrX did only landed where he isn't, so where they are now
+		// never rules out his node
+		for (; followed < log.size(); followed++) possible = possible.follow(graph, log.get(followed), detectives);
+		possible = possible.without(detectives);
+		occupied = detectives;
+	}
+
+	/**
+	 * Replaces the nodes with ones already worked out, such as the model's
+	 *
+	 * @param nodes the nodes MrX could be on
+	 * @param followed the number of travel log entries the nodes follow
+	 * @param detectives where the detectives are
+	 */
+	void update(LocationSet nodes, int followed, LocationSet detectives) {
+		this.possible = nodes;
+		this.followed = followed;
+		this.occupied = detectives;
+	}
+
+	/**
+	 * @return the number of travel log entries followed
+	 */
+	int followed() { return followed; }
+
+	/**
+	 * @return the number of nodes MrX could be on
+	 */
+	int size() { return possible.size(); }
+
+	boolean contains(int node) { return possible.contains(node); }
+
+	/**
+	 * @return the nodes MrX could be on, in order
+	 */
+	int[] nodes() { return possible.toArray(); }
+
+	/**
+	 * @return the nodes MrX could be on after one more single move with any ticket
+	 */
+	int[] nextNodes() { return possible.follow(graph, Ticket.SECRET, occupied).toArray(); }
+}
@@ -0,0 +1,250 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.LocationSet;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.TicketDistances;
+
+/**
+ * Jarvis X's first move from the usual starting positions, searched ahead of time.
+ * <br>
+ * A position is Jarvis X on one of {@link ScotlandYard#MRX_LOCATIONS} with up to five detectives
+ * on {@link ScotlandYard#DETECTIVE_LOCATIONS}, keyed by the index of Jarvis X's location and a bit
+ * per occupied detective location. The book holds the location {@link JarvisX#search} picked for
+ * every position, a byte each in the order of their keys, after a header with the depth it searched
+ * to, a fingerprint of the graph, Jarvis X's double move tickets and the {@link TicketDistances#mask}
+ * of the detectives' tickets it was built for; lookups for other graphs or tickets miss. A hit is
+ * only as good as a search to the book's depth, so Jarvis X goes on searching deeper from it.
+ * <br>
+ * The book for the standard graph is the resource {@value #RESOURCE} next to this class, built by
+ * {@link #main(String[])}. Without it every lookup misses and Jarvis X searches as usual.
+ */
+final class OpeningBook {
+
+	private static final String RESOURCE = "jarvisx-book.bin";
+	private static final int MAGIC = 0x4A584F42; // JXOB
+	private static final int VERSION = 3;
+	// The depth the shipped book was searched to, and the one main() builds by default
+	static final int DEFAULT_DEPTH = 5;
+	private static final int MAX_DETECTIVES = 5;
+	private static final int MASKS = 1 << ScotlandYard.DETECTIVE_LOCATIONS.size();
+	// the keys of the positions in the book, in the order of their locations
+	private static final int[] KEYS = keys();
+	private static final OpeningBook EMPTY = new OpeningBook(0, 0, 0, 0, new byte[KEYS.length]);
+
+	private static final class Standard {
+		static final OpeningBook BOOK = load();
+	}
+
+	private final int depth;
+	private final long graph;
+	private final int doubleTickets;
+	private final int detectiveTickets;
+	// the location picked for each position, 0 if none
+	private final byte[] locations;
+
+	private OpeningBook(int depth, long graph, int doubleTickets, int detectiveTickets, byte[] locations) {
+		this.depth = depth;
+		this.graph = graph;
+		this.doubleTickets = doubleTickets;
+		this.detectiveTickets = detectiveTickets;
+		this.locations = locations;
+	}
+
+	// A fingerprint of every node and every edge with its transports, the same on every run
+	private static long fingerprint(ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>> graph) {
+		Hasher hasher = Hashing.farmHashFingerprint64().newHasher();
+		List<Integer> nodes = new ArrayList<>(graph.nodes());
+		Collections.sort(nodes);
+		hasher.putInt(nodes.size());
+		for (int node : nodes) hasher.putInt(node);
+		for (int source : nodes) {
+			List<Integer> adjacent = new ArrayList<>(graph.adjacentNodes(source));
+			Collections.sort(adjacent);
+			for (int destination : adjacent) {
+				if (destination < source) continue;
+				int transports = 0;
+				for (var transport : graph.edgeValueOrDefault(source, destination, ImmutableSet.of()))
+					transports |= 1 << transport.ordinal();
+				hasher.putInt(source).putInt(destination).putInt(transports);
+			}
+		}
+		return hasher.hash().asLong();
+	}
+
+	private static int[] keys() {
+		int[] keys = new int[ScotlandYard.MRX_LOCATIONS.size() * MASKS];
+		int size = 0;
+		for (int mrX = 0; mrX < ScotlandYard.MRX_LOCATIONS.size(); mrX++) {
+			for (int mask = 1; mask < MASKS; mask++)
+				if (Integer.bitCount(mask) <= MAX_DETECTIVES) keys[size++] = mrX * MASKS + mask;
+		}
+		return Arrays.copyOf(keys, size);
+	}
+
+	// the key of a position, or -1 if it can't be in the book
+	private static int key(int mrX, LocationSet occupied) {
+		int index = ScotlandYard.MRX_LOCATIONS.indexOf(mrX);
+		if (index < 0 || occupied.isEmpty() || occupied.size() > MAX_DETECTIVES) return -1;
+		int mask = 0;
+		for (int node : occupied.toArray()) {
+			int bit = ScotlandYard.DETECTIVE_LOCATIONS.indexOf(node);
+			if (bit < 0) return -1;
+			mask |= 1 << bit;
+		}
+		return index * MASKS + mask;
+	}
+
+	/**
+	 * @return the book for the standard graph, empty if it could not be loaded
+	 */
+	static OpeningBook standard() { return Standard.BOOK; }
+
+	private static OpeningBook load() {
+		InputStream in = OpeningBook.class.getResourceAsStream(RESOURCE);
+		if (in == null) return EMPTY;
+		try (in) {
+			return read(new BufferedInputStream(in));
+		} catch (IOException e) {
+			System.err.println("Jarvis X opening book not loaded: " + e);
+			return EMPTY;
+		}
+	}
+
+	/**
+	 * @return the depth the book's positions were searched to, 0 for an empty book
+	 */
+	int depth() { return depth; }
+
+	/**
+	 * @param setup the game setup
+	 * @param mrX where Jarvis X is
+	 * @param occupied where the detectives are
+	 * @param doubleTickets the double move tickets Jarvis X has
+	 * @param detectiveTickets the {@link TicketDistances#mask} of the tickets the detectives hold
+	 * @return the location to move to, or 0 if the position is not in the book
+	 */
+	int lookup(GameSetup setup, int mrX, LocationSet occupied, int doubleTickets, int detectiveTickets) {
+		if (doubleTickets != this.doubleTickets || detectiveTickets != this.detectiveTickets) return 0;
+		int key = key(mrX, occupied);
+		if (key < 0) return 0;
+		int index = Arrays.binarySearch(KEYS, key);
+		// the graph is only fingerprinted for positions in the book, i.e on Jarvis X's first move
+		if (index < 0 || fingerprint(setup.graph) != graph) return 0;
+		return locations[index] & 0xFF;
+	}
+
+	/**
+	 * @param out the stream to write the book to, not closed
+	 * @throws IOException if the book could not be written
+	 */
+	void write(OutputStream out) throws IOException {
+		var data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeByte(VERSION);
+		data.writeByte(depth);
+		data.writeLong(graph);
+		data.writeByte(doubleTickets);
+		data.writeByte(detectiveTickets);
+		data.writeInt(locations.length);
+		data.write(locations);
+		data.flush();
+	}
+
+	/**
+	 * @param in the stream to read a book from, not closed
+	 * @return the book
+	 * @throws IOException if the book could not be read or is not a book of this version
+	 */
+	static OpeningBook read(InputStream in) throws IOException {
+		var data = new DataInputStream(in);
+		if (data.readInt() != MAGIC) throw new IOException("Not an opening book");
+		int version = data.readUnsignedByte();
+		if (version != VERSION) throw new IOException("Unknown opening book version " + version);
+		int depth = data.readUnsignedByte();
+		long graph = data.readLong();
+		int doubleTickets = data.readUnsignedByte();
+		int detectiveTickets = data.readUnsignedByte();
+		if (data.readInt() != KEYS.length) throw new IOException("Opening book has other positions");
+		byte[] locations = new byte[KEYS.length];
+		data.readFully(locations);
+		return new OpeningBook(depth, graph, doubleTickets, detectiveTickets, locations);
+	}
+
+	/**
+	 * Builds the book for the standard graph and the default tickets, searching every position
+	 * with a single threaded Jarvis X to a fixed depth so the book is the same on every run
+	 *
+	 * @param depth the search depth
+	 * @param progress where to report progress to
+	 * @return the book
+	 * @throws IOException if the graph could not be read
+	 */
+	static OpeningBook build(int depth, PrintStream progress) throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		int doubleTickets = ScotlandYard.defaultMrXTickets().get(ScotlandYard.Ticket.DOUBLE);
+		int detectiveTickets = 0;
+		for (var tickets : ScotlandYard.defaultDetectiveTickets().entrySet())
+			if (tickets.getValue() > 0) detectiveTickets |= TicketDistances.mask(tickets.getKey());
+		ImmutableValueGraph<Integer, ImmutableSet<ScotlandYard.Transport>> graph = setup.graph;
+		if (Collections.max(graph.nodes()) > 0xFF) throw new IllegalStateException("Nodes don't fit a byte");
+		var jarvisX = new JarvisX(1, depth);
+		byte[] locations = new byte[KEYS.length];
+		long started = System.nanoTime();
+		for (int i = 0; i < KEYS.length; i++) {
+			int mrX = ScotlandYard.MRX_LOCATIONS.get(KEYS[i] / MASKS);
+			List<Integer> occupied = new ArrayList<>();
+			for (int mask = KEYS[i] % MASKS; mask != 0; mask &= mask - 1)
+				occupied.add(ScotlandYard.DETECTIVE_LOCATIONS.get(Integer.numberOfTrailingZeros(mask)));
+			locations[i] = (byte) jarvisX.search(graph, mrX, LocationSet.of(ImmutableList.copyOf(occupied)),
+					doubleTickets, detectiveTickets, TimeUnit.MINUTES.toNanos(10));
+			if ((i + 1) % 1000 == 0) progress.printf("%d/%d positions, %ds%n", i + 1, KEYS.length,
+					TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+		}
+		jarvisX.onTerminate();
+		return new OpeningBook(depth, fingerprint(graph), doubleTickets, detectiveTickets, locations);
+	}
+
+	/**
+	 * Builds the book with {@link #build(int, PrintStream)} and writes it to a file
+	 *
+	 * @param args the file to write, then optionally the search depth, by default that of the
+	 * shipped book
+	 * @throws IOException if the graph could not be read or the book could not be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: OpeningBook <file> [depth]");
+			System.exit(1);
+		}
+		Path file = Paths.get(args[0]);
+		int depth = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_DEPTH;
+		var book = build(depth, System.out);
+		try (var out = new BufferedOutputStream(Files.newOutputStream(file))) {
+			book.write(out);
+		}
+		System.out.printf("Wrote %d positions searched to depth %d to %s%n", KEYS.length, depth, file);
+	}
+}
@@ -0,0 +1,410 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.CompactGraph;
+import uk.ac.bris.cs.scotlandyard.model.DistanceOracle;
+import uk.ac.bris.cs.scotlandyard.model.LogEntry;
+import uk.ac.bris.cs.scotlandyard.model.MoveCode;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+import uk.ac.bris.cs.scotlandyard.model.TicketDistances;
+
+/**
+ * A mutable copy of a game from MrX's point of view, for playing out games quickly.
+ * <br>
+ * Moves follow the rules of the model exactly, except that the detectives always move in the
+ * order they were given and a round in which no detective can move simply passes back to MrX.
+ * Moves are {@link MoveCode}s, so they compare equal to {@link MoveCode#of} the board's moves, and
+ * detectives chase with the {@link TicketDistances} of the tickets each of them holds.
+ */
+final class SimulatedGame {
+
+	static final int NONE = 0;
+	static final int MRX = 1;
+	static final int DETECTIVES = 2;
+
+	private static final int TAXI = Ticket.TAXI.ordinal();
+	private static final int UNDERGROUND = Ticket.UNDERGROUND.ordinal();
+	private static final int DOUBLE = Ticket.DOUBLE.ordinal();
+	private static final int SECRET = Ticket.SECRET.ordinal();
+	private static final Ticket[] TICKET_VALUES = Ticket.values();
+	private static final int TICKETS = TICKET_VALUES.length;
+	// bit per ticket that travels along an edge, by its CompactGraph#transports(int); SECRET is only
+	// set for ferries, though it travels along any edge
+	private static final int[] EDGE_TICKETS = edgeTickets();
+
+	// Chance that a detective heads for MrX's last revealed location rather than moving at random
+	private static final double CHASE = 0.75;
+	// Chance that MrX moves as far from the detectives as he can rather than at random
+	private static final double FLEE = 0.5;
+
+	private final CompactGraph graph;
+	private final TicketDistances distances;
+	private final boolean[] reveals;
+	// MrX is player 0, the detectives follow
+	private final Piece[] pieces;
+	private final int[] location;
+	private final int[] tickets;
+	private int logSize;
+	private int lastRevealed;
+	private int winner;
+	// scratch space for the moves of one player
+	private final long[] buffer = new long[64];
+
+	private SimulatedGame(CompactGraph graph, TicketDistances distances, boolean[] reveals, Piece[] pieces) {
+		this.graph = graph;
+		this.distances = distances;
+		this.reveals = reveals;
+		this.pieces = pieces;
+		this.location = new int[pieces.length];
+		this.tickets = new int[pieces.length * TICKETS];
+	}
+
+	private static int[] edgeTickets() {
+		int[] tickets = new int[1 << Transport.values().length];
+		for (int transports = 0; transports < tickets.length; transports++)
+			for (Transport transport : Transport.values())
+				if ((transports & CompactGraph.mask(transport)) != 0)
+					tickets[transports] |= 1 << transport.requiredTicket().ordinal();
+		return tickets;
+	}
+
+	/**
+	 * @param board the board, on MrX's turn
+	 * @param mrXLocation where MrX is
+	 * @return the game on the board
+	 */
+	static SimulatedGame of(Board board, int mrXLocation) {
+		List<Piece> detectives = new ArrayList<>();
+		for (Piece piece : board.getPlayers()) if (piece.isDetective()) detectives.add(piece);
+		boolean[] reveals = new boolean[board.getSetup().rounds.size()];
+		for (int i = 0; i < reveals.length; i++) reveals[i] = board.getSetup().rounds.get(i);
+		Piece[] pieces = new Piece[1 + detectives.size()];
+		pieces[0] = Piece.MrX.MRX;
+		for (int i = 0; i < detectives.size(); i++) pieces[1 + i] = detectives.get(i);
+		SimulatedGame game = new SimulatedGame(board.getSetup().compactGraph(),
+				TicketDistances.of(board.getSetup().graph), reveals, pieces);
+		game.location[0] = mrXLocation;
+		for (int i = 0; i < detectives.size(); i++)
+			game.location[1 + i] = board.getDetectiveLocation((Piece.Detective) detectives.get(i)).orElseThrow();
+		for (int player = 0; player <= detectives.size(); player++) {
+			Board.TicketBoard ticketBoard = board.getPlayerTickets(player == 0 ? Piece.MrX.MRX : detectives.get(player - 1)).orElseThrow();
+			for (Ticket ticket : Ticket.values())
+				game.tickets[player * TICKETS + ticket.ordinal()] = ticketBoard.getCount(ticket);
+		}
+		game.logSize = board.getMrXTravelLog().size();
+		for (LogEntry entry : board.getMrXTravelLog()) {
+			Optional<Integer> revealed = entry.location();
+			if (revealed.isPresent()) game.lastRevealed = revealed.get();
+		}
+		game.winner = board.getWinner().isEmpty() ? NONE
+				: board.getWinner().contains(Piece.MrX.MRX) ? MRX : DETECTIVES;
+		return game;
+	}
+
+	/**
+	 * @return a copy of this game, see {@link #copyFrom(SimulatedGame)}
+	 */
+	SimulatedGame copy() {
+		SimulatedGame copy = new SimulatedGame(graph, distances, reveals, pieces);
+		copy.copyFrom(this);
+		return copy;
+	}
+
+	/**
+	 * Makes this game the same as the other one, which has to be on the same board
+	 */
+	void copyFrom(SimulatedGame other) {
+		System.arraycopy(other.location, 0, location, 0, location.length);
+		System.arraycopy(other.tickets, 0, tickets, 0, tickets.length);
+		logSize = other.logSize;
+		lastRevealed = other.lastRevealed;
+		winner = other.winner;
+	}
+
+	int mrXLocation() { return location[0]; }
+
+	int winner() { return winner; }
+
+	/**
+	 * @return a key for the position, the same for equal positions
+	 */
+	long key() {
+		long key = TranspositionTable.mix(logSize | (long) lastRevealed << 16);
+		for (int player = 0; player < location.length; player++) {
+			long packed = location[player];
+			for (int ticket = 0; ticket < TICKETS; ticket++)
+				packed = packed << 8 | tickets[player * TICKETS + ticket];
+			key = TranspositionTable.mix(key ^ packed ^ (long) player << 56);
+		}
+		return key;
+	}
+
+	private boolean occupied(int node) {
+		for (int detective = 1; detective < location.length; detective++)
+			if (location[detective] == node) return true;
+		return false;
+	}
+
+	private int count(int player, int ticket) { return tickets[player * TICKETS + ticket]; }
+
+	// The tickets travelling along an edge the player holds, each as a bit; for MrX SECRET travels
+	// along any edge
+	private int usableTickets(int player, int edge) {
+		int usable = 0;
+		int travels = EDGE_TICKETS[graph.transports(edge)];
+		for (int ticket = TAXI; ticket <= UNDERGROUND; ticket++)
+			if ((travels & 1 << ticket) != 0 && count(player, ticket) > 0) usable |= 1 << ticket;
+		if (player == 0 && count(0, SECRET) > 0) usable |= 1 << SECRET;
+		return usable;
+	}
+
+	private int mrXTickets(int edge) { return usableTickets(0, edge); }
+
+	// The distances of a detective, for the tickets it holds now
+	private DistanceOracle oracle(int detective) {
+		int held = 0;
+		for (int ticket = TAXI; ticket <= UNDERGROUND; ticket++)
+			if (count(detective, ticket) > 0) held |= 1 << ticket;
+		return distances.oracle(held);
+	}
+
+	private static long single(int source, int ticket, int destination) {
+		return MoveCode.single(Piece.MrX.MRX, source, TICKET_VALUES[ticket], destination);
+	}
+
+	/**
+	 * Writes every move MrX has, the same moves as the board has
+	 *
+	 * @param moves the list to write to, cleared first
+	 * @return the number of moves
+	 */
+	int mrXMoves(LongList moves) {
+		moves.clear();
+		int source = location[0];
+		boolean doubles = count(0, DOUBLE) > 0 && reveals.length - logSize >= 2;
+		for (int edge1 = graph.firstEdge(source); edge1 < graph.endEdge(source); edge1++) {
+			int destination1 = graph.target(edge1);
+			if (occupied(destination1)) continue;
+			int usable1 = mrXTickets(edge1);
+			for (int ticket1 = 0; ticket1 < TICKETS; ticket1++) {
+				if ((usable1 & 1 << ticket1) == 0) continue;
+				moves.add(single(source, ticket1, destination1));
+				if (!doubles) continue;
+				for (int edge2 = graph.firstEdge(destination1); edge2 < graph.endEdge(destination1); edge2++) {
+					int destination2 = graph.target(edge2);
+					if (occupied(destination2)) continue;
+					int usable2 = mrXTickets(edge2);
+					for (int ticket2 = 0; ticket2 < TICKETS; ticket2++) {
+						if ((usable2 & 1 << ticket2) == 0) continue;
+						if (ticket2 == ticket1 && count(0, ticket1) < 2) continue;
+						moves.add(MoveCode.doubleMove(source, TICKET_VALUES[ticket1], destination1,
+								TICKET_VALUES[ticket2], destination2));
+					}
+				}
+			}
+		}
+		return moves.size();
+	}
+
+	/**
+	 * Plays one of MrX's moves
+	 */
+	void playMrX(long move) {
+		if (MoveCode.isDouble(move)) {
+			tickets[DOUBLE]--;
+			step(MoveCode.ticket1(move), MoveCode.destination1(move));
+		}
+		step(MoveCode.ticket(move), MoveCode.destination(move));
+	}
+
+	private void step(Ticket ticket, int destination) {
+		location[0] = destination;
+		tickets[ticket.ordinal()]--;
+		if (reveals[logSize]) lastRevealed = location[0];
+		logSize++;
+	}
+
+	/**
+	 * Plays the detectives' round, every detective moving towards MrX's last revealed location or at
+	 * random, then decides whether the game is over
+	 */
+	void playDetectives(SplittableRandom random) {
+		if (!detectivesHaveTickets()) {
+			winner = MRX;
+			return;
+		}
+		for (int detective = 1; detective < location.length; detective++) {
+			int moves = 0;
+			int source = location[detective];
+			for (int edge = graph.firstEdge(source); edge < graph.endEdge(source); edge++) {
+				int destination = graph.target(edge);
+				if (occupied(destination)) continue;
+				int usable = usableTickets(detective, edge);
+				for (int ticket = TAXI; ticket <= UNDERGROUND && moves < buffer.length; ticket++)
+					if ((usable & 1 << ticket) != 0)
+						buffer[moves++] = MoveCode.single(pieces[detective], source, TICKET_VALUES[ticket], destination);
+			}
+			if (moves == 0) continue;
+			long move = buffer[random.nextInt(moves)];
+			if (lastRevealed != 0 && random.nextDouble() < CHASE) {
+				DistanceOracle oracle = oracle(detective);
+				int best = Integer.MAX_VALUE;
+				int ties = 0;
+				for (int i = 0; i < moves; i++) {
+					int distance = oracle.distance(MoveCode.destination(buffer[i]), lastRevealed);
+					if (distance < best) {
+						best = distance;
+						ties = 0;
+					}
+					// reservoir sampling over the closest moves
+					if (distance == best && random.nextInt(++ties) == 0) move = buffer[i];
+				}
+			}
+			int ticket = MoveCode.ticket(move).ordinal();
+			location[detective] = MoveCode.destination(move);
+			tickets[detective * TICKETS + ticket]--;
+			tickets[ticket]++;
+			if (location[detective] == location[0]) {
+				winner = DETECTIVES;
+				return;
+			}
+		}
+		if (!detectivesHaveTickets() || logSize == reveals.length) winner = MRX;
+		else if (!mrXCanMove()) winner = DETECTIVES;
+	}
+
+	private boolean detectivesHaveTickets() {
+		for (int detective = 1; detective < location.length; detective++)
+			for (int ticket = TAXI; ticket <= UNDERGROUND; ticket++)
+				if (count(detective, ticket) > 0) return true;
+		return false;
+	}
+
+	private boolean mrXCanMove() {
+		int source = location[0];
+		for (int edge = graph.firstEdge(source); edge < graph.endEdge(source); edge++)
+			if (!occupied(graph.target(edge)) && mrXTickets(edge) != 0) return true;
+		return false;
+	}
+
+	/**
+	 * Plays a single move for MrX, fleeing the detectives or at random; a double move is only
+	 * played when every single move ends next to a detective
+	 */
+	void playMrXRandom(SplittableRandom random) {
+		int moves = 0;
+		int safest = -1;
+		int safestDistance = -1;
+		int ties = 0;
+		int source = location[0];
+		boolean flee = random.nextDouble() < FLEE;
+		for (int edge = graph.firstEdge(source); edge < graph.endEdge(source); edge++) {
+			int destination = graph.target(edge);
+			if (occupied(destination)) continue;
+			int usable = mrXTickets(edge);
+			if (usable == 0) continue;
+			// secret tickets are kept for edges nothing else travels along
+			int ticket = (usable & ~(1 << SECRET)) != 0 ? anyTicket(usable & ~(1 << SECRET), random) : SECRET;
+			if (moves < buffer.length) buffer[moves++] = single(source, ticket, destination);
+			int distance = nearestDetective(destination);
+			if (distance > safestDistance) {
+				safestDistance = distance;
+				ties = 0;
+			}
+			if (distance == safestDistance && random.nextInt(++ties) == 0) safest = moves - 1;
+		}
+		if (safestDistance <= 1 && count(0, DOUBLE) > 0 && reveals.length - logSize >= 2) {
+			long escape = doubleEscape(random);
+			if (escape != MoveCode.NONE) {
+				playMrX(escape);
+				return;
+			}
+		}
+		playMrX(flee ? buffer[safest] : buffer[random.nextInt(moves)]);
+	}
+
+	// One of the tickets set in the mask, at random
+	private static int anyTicket(int mask, SplittableRandom random) {
+		int pick = random.nextInt(Integer.bitCount(mask));
+		while (pick-- > 0) mask &= mask - 1;
+		return Integer.numberOfTrailingZeros(mask);
+	}
+
+	// A double move ending further than one move from every detective, MoveCode.NONE if there is none
+	private long doubleEscape(SplittableRandom random) {
+		long found = MoveCode.NONE;
+		int ties = 0;
+		int source = location[0];
+		for (int edge1 = graph.firstEdge(source); edge1 < graph.endEdge(source); edge1++) {
+			int destination1 = graph.target(edge1);
+			int usable1 = mrXTickets(edge1);
+			if (occupied(destination1) || usable1 == 0) continue;
+			int ticket1 = Integer.numberOfTrailingZeros(usable1);
+			for (int edge2 = graph.firstEdge(destination1); edge2 < graph.endEdge(destination1); edge2++) {
+				int destination2 = graph.target(edge2);
+				if (occupied(destination2) || nearestDetective(destination2) <= 1) continue;
+				int usable2 = mrXTickets(edge2);
+				if (count(0, ticket1) < 2) usable2 &= ~(1 << ticket1);
+				if (usable2 == 0) continue;
+				if (random.nextInt(++ties) == 0)
+					found = MoveCode.doubleMove(source, TICKET_VALUES[ticket1], destination1,
+							TICKET_VALUES[Integer.numberOfTrailingZeros(usable2)], destination2);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * @param node a node
+	 * @return the distance from the node to the nearest detective with the tickets it holds,
+	 * {@link DistanceOracle#UNREACHABLE} if none can get there
+	 */
+	int nearestDetective(int node) {
+		int nearest = DistanceOracle.UNREACHABLE;
+		for (int detective = 1; detective < location.length; detective++)
+			nearest = Math.min(nearest, oracle(detective).distance(location[detective], node));
+		return nearest;
+	}
+
+	/**
+	 * Plays the game to the end
+	 *
+	 * @return the winner, {@link #MRX} or {@link #DETECTIVES}
+	 */
+	int playOut(SplittableRandom random) {
+		while (winner == NONE) {
+			playMrXRandom(random);
+			playDetectives(random);
+		}
+		return winner;
+	}
+
+	/**
+	 * A growable list of longs
+	 */
+	static final class LongList {
+		private long[] values = new long[256];
+		private int size;
+
+		void clear() { size = 0; }
+
+		void add(long value) {
+			if (size == values.length) values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
+
+		long get(int index) { return values[index]; }
+
+		int size() { return size; }
+
+		long[] toArray() { return Arrays.copyOf(values, size); }
+	}
+}
@@ -0,0 +1,89 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, lock-free transposition table for game tree search.
+ * <br>
+ * Each slot is two longs: the packed entry and the position key XOR-ed with it. A probe only
+ * trusts a slot whose two words XOR back to the key it asked for, so entries torn by concurrent
+ * writers read as misses instead of needing a lock. A slot is replaced when the new entry was
+ * searched at least as deep, or the old one is left over from an earlier search
+ * (see {@link #newSearch()}).
+ */
+final class TranspositionTable {
+
+	static final int EXACT = 1;
+	static final int LOWER = 2;
+	static final int UPPER = 3;
+
+	// entry layout: score 0-31, location 32-47, depth 48-55, bound 56-57, generation 58-63
+	private static final int LOCATION_SHIFT = 32;
+	private static final int DEPTH_SHIFT = 48;
+	private static final int BOUND_SHIFT = 56;
+	private static final int GENERATION_SHIFT = 58;
+	private static final int GENERATION_MASK = 0x3F;
+
+	private final AtomicLongArray slots;
+	private final int mask;
+	private volatile int generation;
+
+	/**
+	 * @param sizeLog2 the table holds 2^sizeLog2 entries
+	 */
+	TranspositionTable(int sizeLog2) {
+		if (sizeLog2 < 1 || sizeLog2 > 28) throw new IllegalArgumentException("Bad size: " + sizeLog2);
+		this.slots = new AtomicLongArray(2 << sizeLog2);
+		this.mask = (1 << sizeLog2) - 1;
+	}
+
+	// SplitMix64's finaliser, used to spread keys over the table
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Marks the start of a new search; entries from earlier searches become replaceable
+	 */
+	void newSearch() { generation = (generation + 1) & GENERATION_MASK; }
+
+	/**
+	 * @param key the position key
+	 * @return the stored entry, decoded with the static accessors; 0 if there is none
+	 */
+	long probe(long key) {
+		int slot = (int) mix(key) & mask;
+		long entry = slots.getOpaque(2 * slot + 1);
+		return entry != 0 && (slots.getOpaque(2 * slot) ^ entry) == key ? entry : 0;
+	}
+
+	/**
+	 * @param key the position key
+	 * @param depth the remaining depth the position was searched to
+	 * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+	 * @param score the score
+	 * @param location the best location found, or 0
+	 */
+	void store(long key, int depth, int bound, int score, int location) {
+		int slot = (int) mix(key) & mask;
+		long old = slots.getOpaque(2 * slot + 1);
+		if (old != 0 && generation(old) == generation && depth(old) > depth) return;
+		long entry = (score & 0xFFFFFFFFL)
+				| (long) (location & 0xFFFF) << LOCATION_SHIFT
+				| (long) (depth & 0xFF) << DEPTH_SHIFT
+				| (long) bound << BOUND_SHIFT
+				| (long) generation << GENERATION_SHIFT;
+		slots.setOpaque(2 * slot, key ^ entry);
+		slots.setOpaque(2 * slot + 1, entry);
+	}
+
+	static int score(long entry) { return (int) entry; }
+	static int location(long entry) { return (int) (entry >>> LOCATION_SHIFT) & 0xFFFF; }
+	static int depth(long entry) { return (int) (entry >>> DEPTH_SHIFT) & 0xFF; }
+	static int bound(long entry) { return (int) (entry >>> BOUND_SHIFT) & 0x3; }
+	private static int generation(long entry) {
+		return (int) (entry >>> GENERATION_SHIFT) & GENERATION_MASK;
+	}
+}
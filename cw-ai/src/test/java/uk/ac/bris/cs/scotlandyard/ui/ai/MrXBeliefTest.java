@@ -0,0 +1,45 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that {@link MrXBelief} follows MrX's travel log like the model does. This should always
+ * pass but is not part of the assignment.
+ */
+public class MrXBeliefTest {
+
+	@Test public void testMatchesTheModelsPossibleLocations() throws IOException {
+		var random = new Random(23);
+		for (int game = 0; game < 30; game++) {
+			GameState state = SimulatedGameTest.randomStart(random);
+			var belief = new MrXBelief(state.getSetup(), state.getDetectiveOccupancy());
+			while (true) {
+				// updated on every turn, as a detective Ai is asked for each of its detectives' moves
+				belief.update(state.getMrXTravelLog(), state.getDetectiveOccupancy());
+				assertThat(belief.nodes()).isEqualTo(state.getMrXPossibleLocations().toArray());
+				assertThat(belief.followed()).isEqualTo(state.getMrXTravelLog().size());
+				List<Move> moves = new ArrayList<>(state.getAvailableMoves());
+				if (moves.isEmpty()) break;
+				state = state.advance(moves.get(random.nextInt(moves.size())));
+			}
+		}
+	}
+
+	@Test public void testNextNodesAvoidTheDetectives() throws IOException {
+		GameState state = SimulatedGameTest.randomStart(new Random(29));
+		var belief = new MrXBelief(state.getSetup(), state.getDetectiveOccupancy());
+		belief.update(state.getMrXTravelLog(), state.getDetectiveOccupancy());
+		for (int node : belief.nextNodes()) assertThat(state.getDetectiveOccupancy().contains(node)).isFalse();
+		assertThat(belief.nextNodes().length).isGreaterThan(0);
+	}
+}
@@ -0,0 +1,131 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+import com.google.common.graph.MutableValueGraph;
+import com.google.common.graph.ValueGraphBuilder;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.LocationSet;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+import uk.ac.bris.cs.scotlandyard.model.TicketDistances;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests writing, reading and looking up Jarvis X's {@link OpeningBook}. This should always pass but
+ * is not part of the assignment.
+ */
+public class OpeningBookTest {
+
+	private static final int DOUBLE_TICKETS = 2;
+	private static final int DETECTIVE_TICKETS = TicketDistances.mask(Ticket.TAXI)
+			| TicketDistances.mask(Ticket.BUS) | TicketDistances.mask(Ticket.UNDERGROUND);
+
+	private static GameSetup setup;
+	// a book searched to depth 1, quick enough to build for every run
+	private static OpeningBook book;
+	private static byte[] written;
+
+	@BeforeClass public static void build() throws IOException {
+		setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		book = OpeningBook.build(1, new PrintStream(OutputStream.nullOutputStream()));
+		var out = new ByteArrayOutputStream();
+		book.write(out);
+		written = out.toByteArray();
+	}
+
+	private static LocationSet detectives(Integer... nodes) { return LocationSet.of(Arrays.asList(nodes)); }
+
+	@Test public void testReadBookMatchesTheSearch() throws IOException {
+		OpeningBook read = OpeningBook.read(new ByteArrayInputStream(written));
+		assertThat(read.depth()).isEqualTo(1);
+		var jarvisX = new JarvisX(1, 1);
+		var random = new Random(31);
+		for (int i = 0; i < 50; i++) {
+			int mrX = ScotlandYard.MRX_LOCATIONS.get(random.nextInt(ScotlandYard.MRX_LOCATIONS.size()));
+			List<Integer> starts = new ArrayList<>(ScotlandYard.DETECTIVE_LOCATIONS);
+			List<Integer> occupied = new ArrayList<>();
+			for (int detective = 1 + random.nextInt(5); detective > 0; detective--)
+				occupied.add(starts.remove(random.nextInt(starts.size())));
+			var detectives = LocationSet.of(ImmutableList.copyOf(occupied));
+			int location = read.lookup(setup, mrX, detectives, DOUBLE_TICKETS, DETECTIVE_TICKETS);
+			assertThat(location).isNotZero();
+			assertThat(location).isEqualTo(book.lookup(setup, mrX, detectives, DOUBLE_TICKETS, DETECTIVE_TICKETS));
+			assertThat(location).isEqualTo(jarvisX.search(setup.graph, mrX, detectives,
+					DOUBLE_TICKETS, DETECTIVE_TICKETS, TimeUnit.MINUTES.toNanos(1)));
+		}
+		jarvisX.onTerminate();
+	}
+
+	@Test public void testOtherPositionsMiss() {
+		int offList = 1;
+		while (ScotlandYard.MRX_LOCATIONS.contains(offList) || ScotlandYard.DETECTIVE_LOCATIONS.contains(offList)) offList++;
+		var detectives = detectives(26, 29, 123, 138, 141);
+		assertThat(book.lookup(setup, 106, detectives, DOUBLE_TICKETS, DETECTIVE_TICKETS)).isNotZero();
+		assertThat(book.lookup(setup, offList, detectives, DOUBLE_TICKETS, DETECTIVE_TICKETS)).isZero();
+		assertThat(book.lookup(setup, 106, detectives(26, 29, 123, 138, offList), DOUBLE_TICKETS, DETECTIVE_TICKETS)).isZero();
+		assertThat(book.lookup(setup, 106, detectives(), DOUBLE_TICKETS, DETECTIVE_TICKETS)).isZero();
+		assertThat(book.lookup(setup, 106, detectives(26, 29, 50, 123, 138, 141), DOUBLE_TICKETS, DETECTIVE_TICKETS)).isZero();
+	}
+
+	@Test public void testOtherTicketsMiss() {
+		var detectives = detectives(26, 29, 123, 138, 141);
+		assertThat(book.lookup(setup, 106, detectives, DOUBLE_TICKETS - 1, DETECTIVE_TICKETS)).isZero();
+		assertThat(book.lookup(setup, 106, detectives, DOUBLE_TICKETS,
+				DETECTIVE_TICKETS & ~TicketDistances.mask(Ticket.UNDERGROUND))).isZero();
+	}
+
+	@Test public void testOtherGraphsMiss() {
+		ImmutableValueGraph<Integer, ImmutableSet<Transport>> standard = setup.graph;
+		MutableValueGraph<Integer, ImmutableSet<Transport>> graph = ValueGraphBuilder.undirected().build();
+		for (int node : standard.nodes()) graph.addNode(node);
+		boolean dropped = false;
+		for (var edge : standard.edges()) {
+			// the same nodes and all but one edge
+			if (!dropped && (edge.nodeU() == 106 || edge.nodeV() == 106)) {
+				dropped = true;
+				continue;
+			}
+			graph.putEdgeValue(edge.nodeU(), edge.nodeV(), standard.edgeValue(edge.nodeU(), edge.nodeV()).orElseThrow());
+		}
+		var other = new GameSetup(ImmutableValueGraph.copyOf(graph), ScotlandYard.STANDARD24ROUNDS);
+		var detectives = detectives(26, 29, 123, 138, 141);
+		assertThat(book.lookup(other, 106, detectives, DOUBLE_TICKETS, DETECTIVE_TICKETS)).isZero();
+	}
+
+	@Test public void testBadBooksAreNotRead() {
+		byte[] magic = written.clone();
+		magic[0] ^= 1;
+		assertThatThrownBy(() -> OpeningBook.read(new ByteArrayInputStream(magic))).isInstanceOf(IOException.class);
+		byte[] version = written.clone();
+		version[4]++;
+		assertThatThrownBy(() -> OpeningBook.read(new ByteArrayInputStream(version))).isInstanceOf(IOException.class);
+		byte[] truncated = Arrays.copyOf(written, written.length - 1);
+		assertThatThrownBy(() -> OpeningBook.read(new ByteArrayInputStream(truncated))).isInstanceOf(IOException.class);
+	}
+
+	@Test public void testShippedBookIsOfTheDefaultDepth() {
+		assertThat(OpeningBook.standard().depth()).isEqualTo(OpeningBook.DEFAULT_DEPTH);
+		assertThat(OpeningBook.standard().lookup(setup, 106, detectives(26, 29, 123, 138, 141),
+				DOUBLE_TICKETS, DETECTIVE_TICKETS)).isNotZero();
+	}
+}
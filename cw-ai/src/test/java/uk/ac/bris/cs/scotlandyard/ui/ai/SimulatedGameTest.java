@@ -0,0 +1,111 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.DistanceOracle;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MoveCode;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+
+/**
+ * Tests that {@link SimulatedGame} plays by the model's rules. This should always pass but is not
+ * part of the assignment.
+ */
+public class SimulatedGameTest {
+
+	// A random game on the standard graph, MrX on one of the usual starts
+	static GameState randomStart(Random random) throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		List<Integer> starts = new ArrayList<>(ScotlandYard.DETECTIVE_LOCATIONS);
+		List<Player> detectives = new ArrayList<>();
+		for (Detective detective : Detective.values()) {
+			int location = starts.remove(random.nextInt(starts.size()));
+			detectives.add(new Player(detective, ScotlandYard.defaultDetectiveTickets(), location));
+		}
+		int mrX = ScotlandYard.MRX_LOCATIONS.get(random.nextInt(ScotlandYard.MRX_LOCATIONS.size()));
+		return new MyGameStateFactory().build(setup,
+				new Player(MRX, ScotlandYard.defaultMrXTickets(), mrX), ImmutableList.copyOf(detectives));
+	}
+
+	@Test public void testMrXMovesMatchTheBoard() throws IOException {
+		var random = new Random(17);
+		var list = new SimulatedGame.LongList();
+		int compared = 0;
+		for (int game = 0; game < 30; game++) {
+			GameState state = randomStart(random);
+			while (!state.getAvailableMoves().isEmpty()) {
+				List<Move> moves = new ArrayList<>(state.getAvailableMoves());
+				if (moves.get(0).commencedBy().isMrX()) {
+					Set<Long> expected = new HashSet<>();
+					for (Move move : moves) expected.add(MoveCode.of(move));
+					SimulatedGame simulated = SimulatedGame.of(state, moves.get(0).source());
+					simulated.mrXMoves(list);
+					Set<Long> actual = new HashSet<>();
+					for (long move : list.toArray()) actual.add(move);
+					assertThat(list.size()).isEqualTo(actual.size());
+					assertThat(actual).isEqualTo(expected);
+					compared++;
+				}
+				state = state.advance(moves.get(random.nextInt(moves.size())));
+			}
+		}
+		assertThat(compared).isGreaterThan(100);
+	}
+
+	@Test public void testPlayingMrXMatchesTheBoard() throws IOException {
+		var random = new Random(19);
+		for (int game = 0; game < 30; game++) {
+			GameState state = randomStart(random);
+			while (!state.getAvailableMoves().isEmpty()) {
+				List<Move> moves = new ArrayList<>(state.getAvailableMoves());
+				Move move = moves.get(random.nextInt(moves.size()));
+				if (move.commencedBy().isMrX()) {
+					SimulatedGame simulated = SimulatedGame.of(state, move.source());
+					simulated.playMrX(MoveCode.of(move));
+					GameState next = state.advance(move);
+					assertThat(simulated.key())
+							.isEqualTo(SimulatedGame.of(next, MoveCode.destination(MoveCode.of(move))).key());
+				}
+				state = state.advance(move);
+			}
+		}
+	}
+
+	@Test public void testDetectivesOnlyTravelWithTheirTickets() {
+		var graph = ScotlandYard.readGraph(String.join("\n",
+				"3 3",
+				"1", "2", "3",
+				"1 2 Taxi",
+				"2 3 Taxi",
+				"1 3 Bus"));
+		var setup = new GameSetup(graph, ImmutableList.of(false, false));
+		var busOnly = ImmutableMap.of(Ticket.TAXI, 0, Ticket.BUS, 2, Ticket.UNDERGROUND, 0,
+				Ticket.SECRET, 0, Ticket.DOUBLE, 0);
+		GameState state = new MyGameStateFactory().build(setup,
+				new Player(MRX, ScotlandYard.defaultMrXTickets(), 2),
+				ImmutableList.of(new Player(RED, busOnly, 1)));
+		SimulatedGame simulated = SimulatedGame.of(state, 2);
+		assertThat(simulated.nearestDetective(3)).isEqualTo(1);
+		assertThat(simulated.nearestDetective(2)).isEqualTo(DistanceOracle.UNREACHABLE);
+	}
+}
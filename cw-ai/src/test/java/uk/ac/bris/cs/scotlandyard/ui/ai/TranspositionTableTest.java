@@ -0,0 +1,88 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the replacement and torn-entry checks of {@link TranspositionTable}. This should always
+ * pass but is not part of the assignment.
+ */
+public class TranspositionTableTest {
+
+	private static final int SIZE_LOG2 = 4;
+
+	// The first key after the given one that lands in the same slot
+	private static long sameSlot(long key) {
+		int slot = (int) TranspositionTable.mix(key) & ((1 << SIZE_LOG2) - 1);
+		for (long other = key + 1; ; other++)
+			if (((int) TranspositionTable.mix(other) & ((1 << SIZE_LOG2) - 1)) == slot) return other;
+	}
+
+	@Test public void testStoredEntriesDecode() {
+		var table = new TranspositionTable(SIZE_LOG2);
+		table.store(42, 5, TranspositionTable.LOWER, -1234, 199);
+		long entry = table.probe(42);
+		assertThat(TranspositionTable.score(entry)).isEqualTo(-1234);
+		assertThat(TranspositionTable.location(entry)).isEqualTo(199);
+		assertThat(TranspositionTable.depth(entry)).isEqualTo(5);
+		assertThat(TranspositionTable.bound(entry)).isEqualTo(TranspositionTable.LOWER);
+		assertThat(table.probe(43)).isZero();
+	}
+
+	@Test public void testOtherKeysInTheSlotMiss() {
+		var table = new TranspositionTable(SIZE_LOG2);
+		long other = sameSlot(42);
+		table.store(42, 3, TranspositionTable.EXACT, 7, 1);
+		assertThat(table.probe(other)).isZero();
+		assertThat(table.probe(42)).isNotZero();
+	}
+
+	@Test public void testShallowerEntriesOfTheSameSearchDontReplace() {
+		var table = new TranspositionTable(SIZE_LOG2);
+		long other = sameSlot(42);
+		table.newSearch();
+		table.store(42, 5, TranspositionTable.EXACT, 7, 1);
+		table.store(other, 3, TranspositionTable.EXACT, 8, 2);
+		assertThat(table.probe(42)).isNotZero();
+		assertThat(table.probe(other)).isZero();
+		// as deep replaces, so later results of the same depth are kept
+		table.store(other, 5, TranspositionTable.EXACT, 8, 2);
+		assertThat(table.probe(42)).isZero();
+		assertThat(TranspositionTable.score(table.probe(other))).isEqualTo(8);
+	}
+
+	@Test public void testEntriesOfEarlierSearchesAreReplaced() {
+		var table = new TranspositionTable(SIZE_LOG2);
+		long other = sameSlot(42);
+		table.store(42, 9, TranspositionTable.EXACT, 7, 1);
+		table.newSearch();
+		// still readable until something replaces it
+		assertThat(table.probe(42)).isNotZero();
+		table.store(other, 1, TranspositionTable.UPPER, 8, 2);
+		assertThat(table.probe(42)).isZero();
+		assertThat(TranspositionTable.depth(table.probe(other))).isEqualTo(1);
+	}
+
+	@Test public void testTornEntriesReadAsMisses() throws ReflectiveOperationException {
+		var table = new TranspositionTable(SIZE_LOG2);
+		long other = sameSlot(42);
+		table.store(42, 5, TranspositionTable.EXACT, 7, 1);
+		long entry = table.probe(42);
+		table.store(other, 5, TranspositionTable.EXACT, 8, 2);
+		long otherEntry = table.probe(other);
+		// a writer storing the other key got as far as the entry word, over the first key's check word
+		var field = TranspositionTable.class.getDeclaredField("slots");
+		field.setAccessible(true);
+		var slots = (AtomicLongArray) field.get(table);
+		int slot = (int) TranspositionTable.mix(42) & ((1 << SIZE_LOG2) - 1);
+		slots.set(2 * slot, 42 ^ entry);
+		slots.set(2 * slot + 1, otherEntry);
+		assertThat(table.probe(42)).isZero();
+		assertThat(table.probe(other)).isZero();
+		slots.set(2 * slot + 1, entry);
+		assertThat(table.probe(42)).isEqualTo(entry);
+	}
+}
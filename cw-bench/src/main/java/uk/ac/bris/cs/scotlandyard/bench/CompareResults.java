@@ -0,0 +1,110 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with {@code -rf csv} and reports every benchmark that got
+ * slower by more than the threshold and by more than the error of both scores.
+ * <br>
+ * Usage: {@code CompareResults <baseline.csv> <current.csv> [threshold percent, default 10]}.
+ * Exits with status 1 if anything regressed, so it can fail a build comparing two commits.
+ */
+public final class CompareResults {
+
+	private CompareResults() {}
+
+	// A benchmark score, lower is better unless the mode is throughput
+	private static final class Score {
+		final String mode;
+		final double score;
+		final double error;
+		final String unit;
+
+		Score(String mode, double score, double error, String unit) {
+			this.mode = mode;
+			this.score = score;
+			this.error = error;
+			this.unit = unit;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || args.length > 3) {
+			System.err.println("Usage: CompareResults <baseline.csv> <current.csv> [threshold percent]");
+			System.exit(2);
+		}
+		Map<String, Score> baseline = read(Paths.get(args[0]));
+		Map<String, Score> current = read(Paths.get(args[1]));
+		double threshold = args.length == 3 ? Double.parseDouble(args[2]) / 100 : 0.1;
+		int regressions = 0;
+		for (Map.Entry<String, Score> entry : current.entrySet()) {
+			Score now = entry.getValue();
+			Score before = baseline.get(entry.getKey());
+			if (before == null || !before.unit.equals(now.unit)) {
+				System.out.printf("NEW         %s: %.3f %s%n", entry.getKey(), now.score, now.unit);
+				continue;
+			}
+			boolean higherIsBetter = now.mode.equals("thrpt");
+			double change = (now.score - before.score) / before.score;
+			double worse = higherIsBetter ? -change : change;
+			boolean beyondError = Math.abs(now.score - before.score) > before.error + now.error;
+			String verdict = !beyondError ? "SAME" : worse > threshold ? "REGRESSION" : worse < 0 ? "FASTER" : "SAME";
+			if (verdict.equals("REGRESSION")) regressions++;
+			System.out.printf("%-11s %s: %.3f -> %.3f %s (%+.1f%%)%n",
+					verdict, entry.getKey(), before.score, now.score, now.unit, 100 * change);
+		}
+		System.out.println(regressions + " regression(s)");
+		if (regressions > 0) System.exit(1);
+	}
+
+	// Benchmarks by name and parameters
+	private static Map<String, Score> read(Path csv) throws IOException {
+		List<String> lines = Files.readAllLines(csv, StandardCharsets.UTF_8);
+		if (lines.isEmpty()) throw new IOException(csv + " is empty");
+		List<String> header = split(lines.get(0));
+		int benchmark = header.indexOf("Benchmark");
+		int mode = header.indexOf("Mode");
+		int score = header.indexOf("Score");
+		int unit = header.indexOf("Unit");
+		int error = -1;
+		for (int i = 0; i < header.size(); i++)
+			if (header.get(i).startsWith("Score Error")) error = i;
+		if (benchmark < 0 || mode < 0 || score < 0 || unit < 0 || error < 0)
+			throw new IOException(csv + " is not a JMH CSV result file");
+		Map<String, Score> scores = new LinkedHashMap<>();
+		for (String line : lines.subList(1, lines.size())) {
+			if (line.isBlank()) continue;
+			List<String> fields = split(line);
+			StringBuilder key = new StringBuilder(fields.get(benchmark));
+			for (int i = 0; i < header.size(); i++)
+				if (header.get(i).startsWith("Param: ") && !fields.get(i).isEmpty())
+					key.append(' ').append(header.get(i).substring(7)).append('=').append(fields.get(i));
+			// single shot runs have no error
+			String scoreError = fields.get(error);
+			scores.put(key.toString(), new Score(fields.get(mode),
+					Double.parseDouble(fields.get(score)),
+					scoreError.isEmpty() || scoreError.equals("NaN") ? 0 : Double.parseDouble(scoreError),
+					fields.get(unit)));
+		}
+		return scores;
+	}
+
+	// JMH quotes text fields and never puts quotes inside them
+	private static List<String> split(String line) {
+		List<String> fields = new ArrayList<>();
+		for (String field : line.split(",", -1)) {
+			fields.add(field.startsWith("\"") && field.endsWith("\"") && field.length() >= 2
+					? field.substring(1, field.length() - 1)
+					: field);
+		}
+		return fields;
+	}
+}
@@ -0,0 +1,106 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+/**
+ * Benchmarks building game states, generating their moves and advancing them, for both game state
+ * factories.
+ * <br>
+ * Move generation is measured on states that have just been built, as both factories cache the
+ * moves of a state; subtract {@link #build()} for the cost of generating the moves alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GameStateBenchmark {
+
+	public enum FactoryType {
+		MY {
+			@Override Factory<GameState> create() { return new MyGameStateFactory(); }
+		},
+		PACKED {
+			@Override Factory<GameState> create() { return new PackedGameStateFactory(); }
+		};
+
+		abstract Factory<GameState> create();
+	}
+
+	@Param public FactoryType factory;
+	// Whether MrX has double move and secret tickets, which multiply the moves he has
+	@Param({"true", "false"}) public boolean doubleMoves;
+	@Param({"true", "false"}) public boolean secretTickets;
+
+	private Factory<GameState> gameStates;
+	private GameSetup setup;
+	private Player[] mrX;
+	private ImmutableList<ImmutableList<Player>> detectives;
+	private GameState[] states;
+	private Move[] moves;
+	private int next;
+
+	@Setup public void setup() {
+		gameStates = factory.create();
+		setup = Positions.setup();
+		mrX = new Player[Positions.COUNT];
+		var detectives = ImmutableList.<ImmutableList<Player>>builder();
+		states = new GameState[Positions.COUNT];
+		moves = new Move[Positions.COUNT];
+		for (int i = 0; i < Positions.COUNT; i++) {
+			ImmutableList<Player> players = Positions.players(i, doubleMoves, secretTickets);
+			mrX[i] = players.get(0);
+			detectives.add(players.subList(1, players.size()));
+			states[i] = gameStates.build(setup, mrX[i], players.subList(1, players.size()));
+			// the same move every run; toString() doesn't depend on the iteration order of the moves
+			moves[i] = states[i].getAvailableMoves().stream()
+					.min(Comparator.comparing(Move::toString)).orElseThrow();
+		}
+		this.detectives = detectives.build();
+	}
+
+	private int next() {
+		int position = next;
+		next = (next + 1) % Positions.COUNT;
+		return position;
+	}
+
+	@Benchmark public GameState build() {
+		int i = next();
+		return gameStates.build(setup, mrX[i], detectives.get(i));
+	}
+
+	@Benchmark public Object availableMoves() {
+		int i = next();
+		return gameStates.build(setup, mrX[i], detectives.get(i)).getAvailableMoves();
+	}
+
+	@Benchmark public GameState advance() {
+		int i = next();
+		return states[i].advance(moves[i]);
+	}
+}
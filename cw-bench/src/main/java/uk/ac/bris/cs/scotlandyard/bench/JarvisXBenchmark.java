@@ -0,0 +1,77 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import io.atlassian.fugue.Pair;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.ui.ai.JarvisX;
+
+/**
+ * Benchmarks Jarvis X picking MrX's first move.
+ * <br>
+ * Each search is limited by depth rather than time, with a timeout long enough never to be reached,
+ * so every run does the same work. A new Jarvis X is created for every move so no search reuses
+ * the transposition table of an earlier one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JarvisXBenchmark {
+
+	private static final Pair<Long, TimeUnit> TIMEOUT = new Pair<>(1L, TimeUnit.HOURS);
+
+	@Param({"3", "5"}) public int depth;
+	@Param({"1"}) public int parallelism;
+
+	private GameState[] boards;
+	private int next;
+	private JarvisX ai;
+
+	@Setup public void setup() {
+		var factory = new MyGameStateFactory();
+		boards = new GameState[Positions.COUNT];
+		for (int i = 0; i < Positions.COUNT; i++) {
+			ImmutableList<Player> players = Positions.players(i, true, true);
+			boards[i] = factory.build(Positions.setup(), players.get(0), players.subList(1, players.size()));
+			// generate the moves up front, they are not what is measured
+			boards[i].getAvailableMoves();
+		}
+	}
+
+	@Setup(Level.Invocation) public void createAi() {
+		ai = new JarvisX(parallelism, depth);
+		ai.onStart();
+	}
+
+	@TearDown(Level.Invocation) public void terminateAi() {
+		ai.onTerminate();
+	}
+
+	@Benchmark public Move pickMove() {
+		GameState board = boards[next];
+		next = (next + 1) % Positions.COUNT;
+		return ai.pickMove(board, TIMEOUT);
+	}
+}
@@ -0,0 +1,49 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Benchmarks using and giving tickets, which every move does at least once
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PlayerBenchmark {
+
+	private static final ImmutableList<Ticket> DOUBLE_MOVE =
+			ImmutableList.of(Ticket.TAXI, Ticket.SECRET, Ticket.DOUBLE);
+
+	private Player mrX;
+	private Player detective;
+
+	@Setup public void setup() {
+		ImmutableList<Player> players = Positions.players(0, true, true);
+		mrX = players.get(0);
+		detective = players.get(1);
+	}
+
+	@Benchmark public Player use() { return detective.use(Ticket.TAXI); }
+
+	@Benchmark public Player useDoubleMove() { return mrX.use(DOUBLE_MOVE); }
+
+	@Benchmark public Player give() { return mrX.give(Ticket.TAXI); }
+}
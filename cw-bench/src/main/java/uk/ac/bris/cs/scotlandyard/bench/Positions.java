@@ -0,0 +1,69 @@
+package uk.ac.bris.cs.scotlandyard.bench;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Fixed starting positions shared by the benchmarks, so every run measures the same games
+ */
+final class Positions {
+
+	// Positions per benchmark; benchmarks cycle through them so none is measured on a single board
+	static final int COUNT = 16;
+	// Seed of the first position
+	private static final long SEED = 42;
+
+	private static GameSetup setup;
+
+	private Positions() {}
+
+	/**
+	 * @return the standard 24 round setup, read once
+	 */
+	static synchronized GameSetup setup() {
+		if (setup == null) {
+			try {
+				setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+			} catch (IOException e) { throw new UncheckedIOException(e); }
+		}
+		return setup;
+	}
+
+	/**
+	 * Players at the start of a game, MrX first, with MrX and five detectives on distinct random
+	 * nodes rather than just the starting locations so move generation sees all parts of the map
+	 *
+	 * @param index the position, from 0 to {@link #COUNT}
+	 * @param doubleMoves whether MrX has his double move tickets
+	 * @param secretTickets whether MrX has his secret tickets
+	 * @return the players
+	 */
+	static ImmutableList<Player> players(int index, boolean doubleMoves, boolean secretTickets) {
+		List<Integer> nodes = new ArrayList<>(setup().graph.nodes());
+		Collections.shuffle(nodes, new Random(SEED + index));
+		Map<Ticket, Integer> mrXTickets = new EnumMap<>(ScotlandYard.defaultMrXTickets());
+		if (!doubleMoves) mrXTickets.put(Ticket.DOUBLE, 0);
+		if (!secretTickets) mrXTickets.put(Ticket.SECRET, 0);
+		var players = ImmutableList.<Player>builder()
+				.add(new Player(MrX.MRX, ImmutableMap.copyOf(mrXTickets), nodes.get(0)));
+		var detectives = ScotlandYard.DETECTIVES.asList();
+		for (int i = 0; i < detectives.size(); i++)
+			players.add(new Player(detectives.get(i), ScotlandYard.defaultDetectiveTickets(), nodes.get(i + 1)));
+		return players.build();
+	}
+}
@@ -7,6 +7,7 @@ import com.google.common.graph.ImmutableValueGraph;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.stream.Stream;
@@ -92,15 +93,19 @@ public final class ResourceManager {
 		var found = new FastClasspathScanner()
 				.enableClassInfo()
 				.scan()
-				.getClassesImplementing(Ai.class.toString());
+				.getClassesImplementing(Ai.class.getName());
 		return found.stream().map(c -> {
 			try {
 				Class<Ai> clazz = (Class<Ai>) c.loadClass();
 				if (!Ai.class.isAssignableFrom(clazz))
 					throw new IllegalArgumentException(c + " does not implement " + Ai.class);
-				return instantiateAi(clazz);
+				return clazz;
 			} catch (Exception e) { throw new RuntimeException(e); }
-		}).collect(ImmutableList.toImmutableList());
+		})
+				// abstract Ais and sub-interfaces can't be instantiated
+				.filter(clazz -> !Modifier.isAbstract(clazz.getModifiers()))
+				.map(ResourceManager::instantiateAi)
+				.collect(ImmutableList.toImmutableList());
 	}
 
 }
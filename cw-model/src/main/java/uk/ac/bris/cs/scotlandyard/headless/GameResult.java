@@ -0,0 +1,92 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.GameRecord;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+
+/**
+ * The outcome of a game played by {@link HeadlessRunner}
+ */
+public final class GameResult {
+
+	private final long seed;
+	private final ImmutableSet<Piece> winner;
+	private final int rounds;
+	private final long[] mrXMoveNanos;
+	private final long[] detectiveMoveNanos;
+	private final String forfeit;
+	private final GameRecord record;
+
+	GameResult(long seed,
+	           ImmutableSet<Piece> winner,
+	           int rounds,
+	           long[] mrXMoveNanos,
+	           long[] detectiveMoveNanos,
+	           String forfeit,
+	           GameRecord record) {
+		this.seed = seed;
+		this.winner = Objects.requireNonNull(winner);
+		this.rounds = rounds;
+		this.mrXMoveNanos = Objects.requireNonNull(mrXMoveNanos);
+		this.detectiveMoveNanos = Objects.requireNonNull(detectiveMoveNanos);
+		this.forfeit = forfeit;
+		this.record = Objects.requireNonNull(record);
+	}
+
+	/**
+	 * @return the seed the game was played with
+	 */
+	public long seed() { return seed; }
+	/**
+	 * @return the winner of the game; empty if the game could not be finished because the pieces
+	 * to move had no moves
+	 */
+	@Nonnull public ImmutableSet<Piece> winner() { return winner; }
+	/**
+	 * @return whether MrX won
+	 */
+	public boolean mrXWon() { return winner.stream().anyMatch(Piece::isMrX); }
+	/**
+	 * @return whether the detectives won
+	 */
+	public boolean detectivesWon() { return winner.stream().anyMatch(Piece::isDetective); }
+	/**
+	 * @return the number of rounds played, i.e the size of MrX's travel log
+	 */
+	public int rounds() { return rounds; }
+	/**
+	 * @return the time MrX's Ai took for each of its moves, in nanoseconds
+	 */
+	@Nonnull public long[] mrXMoveNanos() { return mrXMoveNanos.clone(); }
+	/**
+	 * @return the time the detectives' Ai took for each of its moves, in nanoseconds
+	 */
+	@Nonnull public long[] detectiveMoveNanos() { return detectiveMoveNanos.clone(); }
+	/**
+	 * @return why the losing side forfeited, if the game didn't end by the rules; e.g the Ai threw
+	 * an exception, picked an illegal move or ran out of time
+	 */
+	@Nonnull public Optional<String> forfeit() { return Optional.ofNullable(forfeit); }
+	/**
+	 * @return the starting players and the moves played, which replay the game up to where it
+	 * ended; a forfeited move is left out
+	 */
+	@Nonnull public GameRecord record() { return record; }
+
+	@Override public String toString() {
+		return "GameResult{" +
+				"seed=" + seed +
+				", winner=" + winner +
+				", rounds=" + rounds +
+				", mrXMoves=" + mrXMoveNanos.length +
+				", detectiveMoves=" + detectiveMoveNanos.length +
+				", forfeit=" + forfeit +
+				'}';
+	}
+}
@@ -0,0 +1,238 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Longs;
+
+import java.time.Duration;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+import io.atlassian.fugue.Pair;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameRecord;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MoveCode;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+/**
+ * Plays Ai versus Ai games without the UI.
+ * <br>
+ * Games are driven through {@link GameState#advance(Move)} directly, one game per task on a
+ * fixed thread pool. Each game has a seed which decides the starting players, so a batch can be
+ * replayed with the same starting positions. Every pool thread creates its own Ai instances from
+ * the given suppliers and reuses them for all the games it plays, calling {@link Ai#onStart()}
+ * and {@link Ai#onTerminate()} around each game like the UI does.
+ * <br>
+ * A side that throws, picks a move that is not available or takes longer than the timeout
+ * forfeits the game, which the other side wins; see {@link GameResult#forfeit()}.
+ */
+public final class HeadlessRunner {
+
+	private final Factory<GameState> factory;
+	private final GameSetup setup;
+	private final LongFunction<ImmutableList<Player>> players;
+	private final Supplier<Ai> mrXAi;
+	private final Supplier<Ai> detectiveAi;
+	private final Duration timeout;
+
+	/**
+	 * @param factory the game state factory to play with
+	 * @param setup the game setup
+	 * @param players the starting players for a seed, MrX first; see {@link #standardPlayers(int)}
+	 * @param mrXAi creates the Ai playing MrX
+	 * @param detectiveAi creates the Ai playing the detectives
+	 * @param timeout the time each Ai has to pick a move
+	 */
+	public HeadlessRunner(@Nonnull Factory<GameState> factory,
+	                      @Nonnull GameSetup setup,
+	                      @Nonnull LongFunction<ImmutableList<Player>> players,
+	                      @Nonnull Supplier<Ai> mrXAi,
+	                      @Nonnull Supplier<Ai> detectiveAi,
+	                      @Nonnull Duration timeout) {
+		this.factory = Objects.requireNonNull(factory);
+		this.setup = Objects.requireNonNull(setup);
+		this.players = Objects.requireNonNull(players);
+		this.mrXAi = Objects.requireNonNull(mrXAi);
+		this.detectiveAi = Objects.requireNonNull(detectiveAi);
+		this.timeout = Objects.requireNonNull(timeout);
+		if (timeout.isNegative() || timeout.isZero())
+			throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+	}
+
+	/**
+	 * Starting players with default tickets at the locations
+	 * {@link ScotlandYard#generateMrXLocation(int)} and
+	 * {@link ScotlandYard#generateDetectiveLocations(int, int)} pick for the seed, folded to an int
+	 * with {@link Long#hashCode(long)} so every bit of it counts
+	 *
+	 * @param detectives the number of detectives
+	 * @return the starting players for a seed, MrX first
+	 */
+	@Nonnull public static LongFunction<ImmutableList<Player>> standardPlayers(int detectives) {
+		if (detectives < 1 || detectives > ScotlandYard.DETECTIVES.size())
+			throw new IllegalArgumentException("Bad number of detectives: " + detectives);
+		return seed -> {
+			int folded = Long.hashCode(seed);
+			var players = ImmutableList.<Player>builder().add(new Player(MrX.MRX,
+					ScotlandYard.defaultMrXTickets(), ScotlandYard.generateMrXLocation(folded)));
+			var locations = ScotlandYard.generateDetectiveLocations(folded, detectives);
+			var pieces = ScotlandYard.DETECTIVES.asList();
+			for (int i = 0; i < detectives; i++)
+				players.add(new Player(pieces.get(i), ScotlandYard.defaultDetectiveTickets(), locations.get(i)));
+			return players.build();
+		};
+	}
+
+	/**
+	 * Plays one game on the calling thread with new Ai instances
+	 *
+	 * @param seed the seed of the game
+	 * @return the result of the game
+	 */
+	@Nonnull public GameResult play(long seed) {
+		return play(seed, mrXAi.get(), detectiveAi.get());
+	}
+
+	private GameResult play(long seed, Ai mrX, Ai detectives) {
+		ImmutableList<Player> start = players.apply(seed);
+		GameState state = factory.build(setup, start.get(0), start.subList(1, start.size()));
+		var timeoutPair = new Pair<>(timeout.toMillis(), TimeUnit.MILLISECONDS);
+		List<Long> mrXNanos = new ArrayList<>();
+		List<Long> detectiveNanos = new ArrayList<>();
+		List<Long> played = new ArrayList<>();
+		ImmutableSet<Piece> winner = ImmutableSet.of();
+		String forfeit = null;
+		mrX.onStart();
+		detectives.onStart();
+		try {
+			while (state.getWinner().isEmpty()) {
+				var moves = state.getAvailableMoves();
+				// remaining detectives can be left without a move; the game can't go on but has no winner
+				if (moves.isEmpty()) break;
+				boolean mrXTurn = moves.iterator().next().commencedBy().isMrX();
+				Ai ai = mrXTurn ? mrX : detectives;
+				long started = System.nanoTime();
+				Move move;
+				try {
+					move = ai.pickMove(state, timeoutPair);
+				} catch (RuntimeException e) {
+					forfeit = "Ai(" + ai.name() + ") threw " + e;
+					winner = otherSide(state, mrXTurn);
+					break;
+				}
+				long elapsed = System.nanoTime() - started;
+				(mrXTurn ? mrXNanos : detectiveNanos).add(elapsed);
+				if (!moves.contains(move)) {
+					forfeit = "Ai(" + ai.name() + ") selected an invalid move, got: " + move;
+					winner = otherSide(state, mrXTurn);
+					break;
+				}
+				if (elapsed > timeout.toNanos()) {
+					forfeit = "Ai(" + ai.name() + ") timed out after " + Duration.ofNanos(elapsed);
+					winner = otherSide(state, mrXTurn);
+					break;
+				}
+				state = state.advance(move);
+				played.add(MoveCode.of(move));
+			}
+			if (forfeit == null) winner = state.getWinner();
+		} finally {
+			mrX.onTerminate();
+			detectives.onTerminate();
+		}
+		return new GameResult(seed, winner, state.getMrXTravelLog().size(),
+				Longs.toArray(mrXNanos), Longs.toArray(detectiveNanos), forfeit,
+				new GameRecord(setup.rounds, start.get(0), start.subList(1, start.size()), Longs.toArray(played)));
+	}
+
+	private static ImmutableSet<Piece> otherSide(GameState state, boolean mrXTurn) {
+		return mrXTurn
+				? state.getPlayers().stream().filter(Piece::isDetective).collect(ImmutableSet.toImmutableSet())
+				: ImmutableSet.of(MrX.MRX);
+	}
+
+	/**
+	 * Plays a game for each seed on a pool of the given number of threads, handing each result to
+	 * the sink on the calling thread as soon as its game ends
+	 *
+	 * @param seeds the seeds of the games
+	 * @param threads the number of games played at the same time
+	 * @param sink receives the results in the order the games end
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 * @throws ExecutionException if a game could not be played, e.g the factory rejected the
+	 * starting players
+	 */
+	public void run(@Nonnull List<Long> seeds, int threads, @Nonnull Consumer<GameResult> sink)
+			throws InterruptedException, ExecutionException {
+		Objects.requireNonNull(sink);
+		run(seeds, threads, (index, result) -> sink.accept(result));
+	}
+
+	/**
+	 * Plays a game for each seed on a pool of the given number of threads
+	 *
+	 * @param seeds the seeds of the games
+	 * @param threads the number of games played at the same time
+	 * @return the results in the order of the given seeds
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 * @throws ExecutionException if a game could not be played, see
+	 * {@link #run(List, int, Consumer)}
+	 */
+	@Nonnull public ImmutableList<GameResult> run(@Nonnull List<Long> seeds, int threads)
+			throws InterruptedException, ExecutionException {
+		GameResult[] results = new GameResult[seeds.size()];
+		run(seeds, threads, (index, result) -> results[index] = result);
+		return ImmutableList.copyOf(results);
+	}
+
+	private void run(List<Long> seeds, int threads, BiConsumer<Integer, GameResult> sink)
+			throws InterruptedException, ExecutionException {
+		if (threads < 1) throw new IllegalArgumentException("Threads must be positive: " + threads);
+		final List<Long> games = ImmutableList.copyOf(seeds);
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "headless-game");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// Ais aren't thread safe, so every pool thread plays with its own pair
+		ThreadLocal<Ai> mrX = ThreadLocal.withInitial(mrXAi);
+		ThreadLocal<Ai> detectives = ThreadLocal.withInitial(detectiveAi);
+		try {
+			CompletionService<Entry<Integer, GameResult>> completed =
+					new ExecutorCompletionService<>(executor);
+			for (int i = 0; i < games.size(); i++) {
+				final int index = i;
+				completed.submit(() -> new SimpleImmutableEntry<>(index,
+						play(games.get(index), mrX.get(), detectives.get())));
+			}
+			for (int i = 0; i < games.size(); i++) {
+				Entry<Integer, GameResult> result = completed.take().get();
+				sink.accept(result.getKey(), result.getValue());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Statistics of the games one Ai played as MrX against another Ai playing the detectives in a
+ * {@link Tournament}
+ */
+public final class MatchupStats {
+
+	// z for a two-sided 95% confidence interval
+	private static final double Z = 1.959964;
+
+	private final String mrXAi;
+	private final String detectiveAi;
+	private final int games;
+	private final int mrXWins;
+	private final int detectiveWins;
+	private final int forfeits;
+	private final long totalRounds;
+	private final long[] mrXMoveMicros;
+	private final long[] detectiveMoveMicros;
+
+	MatchupStats(String mrXAi,
+	             String detectiveAi,
+	             int games,
+	             int mrXWins,
+	             int detectiveWins,
+	             int forfeits,
+	             long totalRounds,
+	             long[] mrXMoveMicros,
+	             long[] detectiveMoveMicros) {
+		this.mrXAi = Objects.requireNonNull(mrXAi);
+		this.detectiveAi = Objects.requireNonNull(detectiveAi);
+		this.games = games;
+		this.mrXWins = mrXWins;
+		this.detectiveWins = detectiveWins;
+		this.forfeits = forfeits;
+		this.totalRounds = totalRounds;
+		this.mrXMoveMicros = mrXMoveMicros.clone();
+		this.detectiveMoveMicros = detectiveMoveMicros.clone();
+		Arrays.sort(this.mrXMoveMicros);
+		Arrays.sort(this.detectiveMoveMicros);
+	}
+
+	/**
+	 * @return the name of the Ai playing MrX
+	 */
+	@Nonnull public String mrXAi() { return mrXAi; }
+	/**
+	 * @return the name of the Ai playing the detectives
+	 */
+	@Nonnull public String detectiveAi() { return detectiveAi; }
+	/**
+	 * @return the number of games played
+	 */
+	public int games() { return games; }
+	/**
+	 * @return the number of games MrX won
+	 */
+	public int mrXWins() { return mrXWins; }
+	/**
+	 * @return the number of games the detectives won
+	 */
+	public int detectiveWins() { return detectiveWins; }
+	/**
+	 * @return the number of games without a winner, see {@link GameResult#winner()}
+	 */
+	public int draws() { return games - mrXWins - detectiveWins; }
+	/**
+	 * @return the number of games that ended by a forfeit, see {@link GameResult#forfeit()}
+	 */
+	public int forfeits() { return forfeits; }
+	/**
+	 * @return the share of games MrX won; 0 if no games were played
+	 */
+	public double mrXWinRate() { return games == 0 ? 0 : (double) mrXWins / games; }
+	/**
+	 * @return the lower end of the 95% Wilson score interval of {@link #mrXWinRate()}
+	 */
+	public double mrXWinRateLow() { return wilson(-1); }
+	/**
+	 * @return the upper end of the 95% Wilson score interval of {@link #mrXWinRate()}
+	 */
+	public double mrXWinRateHigh() { return wilson(1); }
+	/**
+	 * @return the average number of rounds per game; 0 if no games were played
+	 */
+	public double averageRounds() { return games == 0 ? 0 : (double) totalRounds / games; }
+	/**
+	 * @param percentile the percentile, in (0, 100]
+	 * @return the time MrX's Ai took to pick a move at the given percentile, in milliseconds
+	 */
+	public double mrXLatencyMillis(double percentile) { return percentile(mrXMoveMicros, percentile); }
+	/**
+	 * @param percentile the percentile, in (0, 100]
+	 * @return the time the detectives' Ai took to pick a move at the given percentile, in
+	 * milliseconds
+	 */
+	public double detectiveLatencyMillis(double percentile) {
+		return percentile(detectiveMoveMicros, percentile);
+	}
+
+	private double wilson(int sign) {
+		if (games == 0) return sign < 0 ? 0 : 1;
+		double p = mrXWinRate();
+		double z2n = Z * Z / games;
+		double centre = p + z2n / 2;
+		double spread = Z * Math.sqrt(p * (1 - p) / games + z2n / (4 * games));
+		return (centre + sign * spread) / (1 + z2n);
+	}
+
+	// nearest rank percentile of sorted samples
+	private static double percentile(long[] sorted, double percentile) {
+		if (percentile <= 0 || percentile > 100)
+			throw new IllegalArgumentException("Bad percentile: " + percentile);
+		if (sorted.length == 0) return 0;
+		int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+		return sorted[Math.max(rank, 1) - 1] / 1000.0;
+	}
+
+	@Override public String toString() {
+		return String.format("%s (MrX) vs %s (detectives): %d games, MrX won %.1f%% [%.1f%%, %.1f%%], "
+						+ "detectives won %d, draws %d, forfeits %d, %.1f rounds/game, "
+						+ "MrX move p50/p90/p99 %.1f/%.1f/%.1f ms, detective move p50/p90/p99 %.1f/%.1f/%.1f ms",
+				mrXAi, detectiveAi, games,
+				100 * mrXWinRate(), 100 * mrXWinRateLow(), 100 * mrXWinRateHigh(),
+				detectiveWins, draws(), forfeits, averageRounds(),
+				mrXLatencyMillis(50), mrXLatencyMillis(90), mrXLatencyMillis(99),
+				detectiveLatencyMillis(50), detectiveLatencyMillis(90), detectiveLatencyMillis(99));
+	}
+}
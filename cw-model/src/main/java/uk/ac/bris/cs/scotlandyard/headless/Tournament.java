@@ -0,0 +1,363 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.Longs;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.ResourceManager;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameArchive;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+/**
+ * Plays every Ai as MrX against every Ai as the detectives, itself included, over the same seeded
+ * starting positions, using {@link HeadlessRunner}.
+ * <br>
+ * Every game is appended to a CSV file as soon as it ends, so a long run can be watched while it
+ * goes. Running again with the same file skips the games already in it and resumes the run;
+ * the statistics cover the recorded games as well as the new ones.
+ */
+public final class Tournament {
+
+	static final String HEADER =
+			"mrx_ai,detective_ai,seed,winner,rounds,forfeit,mrx_move_micros,detective_move_micros";
+
+	private final Factory<GameState> factory;
+	private final GameSetup setup;
+	private final LongFunction<ImmutableList<Player>> players;
+	private final ImmutableMap<String, Supplier<Ai>> contestants;
+	private final Duration timeout;
+
+	/**
+	 * @param factory the game state factory to play with
+	 * @param setup the game setup
+	 * @param players the starting players for a seed, MrX first; see
+	 * {@link HeadlessRunner#standardPlayers(int)}
+	 * @param contestants the Ais by name, each creating a new instance of the Ai
+	 * @param timeout the time each Ai has to pick a move
+	 */
+	public Tournament(@Nonnull Factory<GameState> factory,
+	                  @Nonnull GameSetup setup,
+	                  @Nonnull LongFunction<ImmutableList<Player>> players,
+	                  @Nonnull ImmutableMap<String, Supplier<Ai>> contestants,
+	                  @Nonnull Duration timeout) {
+		this.factory = Objects.requireNonNull(factory);
+		this.setup = Objects.requireNonNull(setup);
+		this.players = Objects.requireNonNull(players);
+		this.contestants = Objects.requireNonNull(contestants);
+		this.timeout = Objects.requireNonNull(timeout);
+		if (contestants.isEmpty()) throw new IllegalArgumentException("No Ais to play");
+	}
+
+	/**
+	 * @return every Ai found by {@link ResourceManager#scanAis()} by name; Ais sharing a name keep
+	 * the first one found
+	 */
+	@Nonnull public static ImmutableMap<String, Supplier<Ai>> discoverAis() {
+		Map<String, Supplier<Ai>> found = new LinkedHashMap<>();
+		for (Ai ai : ResourceManager.scanAis()) {
+			// games need an instance per thread, so only the class of the scanned instance is kept
+			@SuppressWarnings("unchecked") Class<Ai> type = (Class<Ai>) ai.getClass();
+			found.putIfAbsent(ai.name(), () -> ResourceManager.instantiateAi(type));
+		}
+		return ImmutableMap.copyOf(found);
+	}
+
+	/**
+	 * Plays every matchup for each seed that is not already recorded in the CSV file
+	 *
+	 * @param csv the file recording every game; created if it does not exist
+	 * @param seeds the seeds of the games each matchup plays
+	 * @param threads the number of games played at the same time
+	 * @return the statistics of every matchup over the given seeds
+	 * @throws IOException if the file can't be read or written
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 * @throws ExecutionException if a game could not be played
+	 */
+	@Nonnull public ImmutableList<MatchupStats> run(@Nonnull Path csv,
+	                                                @Nonnull List<Long> seeds,
+	                                                int threads)
+			throws IOException, InterruptedException, ExecutionException {
+		return run(csv, seeds, threads, null);
+	}
+
+	/**
+	 * Plays like {@link #run(Path, List, int)} and adds every game played to an archive as well, so
+	 * the games can be replayed. A game is added before it is recorded in the CSV file, so a game
+	 * played again after a run was killed can be in the archive twice.
+	 *
+	 * @param csv the file recording every game; created if it does not exist
+	 * @param archive the data file of the {@link GameArchive} to add the games to; created with its
+	 * index if it does not exist
+	 * @param seeds the seeds of the games each matchup plays
+	 * @param threads the number of games played at the same time
+	 * @return the statistics of every matchup over the given seeds
+	 * @throws IOException if a file can't be read or written
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 * @throws ExecutionException if a game could not be played
+	 */
+	@Nonnull public ImmutableList<MatchupStats> run(@Nonnull Path csv,
+	                                                @Nonnull Path archive,
+	                                                @Nonnull List<Long> seeds,
+	                                                int threads)
+			throws IOException, InterruptedException, ExecutionException {
+		try (GameArchive.Writer writer = GameArchive.append(archive)) {
+			return run(csv, seeds, threads, writer);
+		}
+	}
+
+	private ImmutableList<MatchupStats> run(Path csv, List<Long> seeds, int threads, GameArchive.Writer archive)
+			throws IOException, InterruptedException, ExecutionException {
+		List<CsvRow> rows = Files.exists(csv) ? resume(csv) : new ArrayList<>();
+		boolean newFile = !Files.exists(csv) || Files.size(csv) == 0;
+		try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			if (newFile) {
+				writer.write(HEADER);
+				writer.newLine();
+				writer.flush();
+			}
+			for (String mrX : contestants.keySet()) {
+				for (String detectives : contestants.keySet()) {
+					Set<Long> played = rows.stream()
+							.filter(r -> r.mrXAi.equals(mrX) && r.detectiveAi.equals(detectives))
+							.map(r -> r.seed)
+							.collect(Collectors.toSet());
+					List<Long> remaining = seeds.stream()
+							.filter(seed -> !played.contains(seed))
+							.distinct()
+							.collect(Collectors.toList());
+					if (remaining.isEmpty()) continue;
+					var runner = new HeadlessRunner(factory, setup, players,
+							contestants.get(mrX), contestants.get(detectives), timeout);
+					try {
+						runner.run(remaining, threads, result -> {
+							CsvRow row = CsvRow.of(mrX, detectives, result);
+							rows.add(row);
+							try {
+								if (archive != null) archive.add(result.record());
+								writer.write(row.toCsv());
+								writer.newLine();
+								writer.flush();
+							} catch (IOException e) { throw new UncheckedIOException(e); }
+						});
+					} catch (UncheckedIOException e) { throw e.getCause(); }
+				}
+			}
+		}
+		return stats(rows, seeds);
+	}
+
+	private ImmutableList<MatchupStats> stats(List<CsvRow> rows, List<Long> seeds) {
+		Set<Long> included = new HashSet<>(seeds);
+		var stats = ImmutableList.<MatchupStats>builder();
+		for (String mrX : contestants.keySet()) {
+			for (String detectives : contestants.keySet()) {
+				List<CsvRow> games = rows.stream()
+						.filter(r -> r.mrXAi.equals(mrX) && r.detectiveAi.equals(detectives))
+						.filter(r -> included.contains(r.seed))
+						.collect(Collectors.toList());
+				stats.add(CsvRow.stats(mrX, detectives, games));
+			}
+		}
+		return stats.build();
+	}
+
+	// Reads the rows on complete lines and cuts off a partial last line, left by a run that was
+	// killed mid-write, so its game is played again and the next row starts on a line of its own
+	private static List<CsvRow> resume(Path csv) throws IOException {
+		byte[] bytes = Files.readAllBytes(csv);
+		int end = Bytes.lastIndexOf(bytes, (byte) '\n') + 1;
+		if (end < bytes.length) {
+			try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.WRITE)) {
+				channel.truncate(end);
+			}
+		}
+		List<CsvRow> rows = new ArrayList<>();
+		for (String line : new String(bytes, 0, end, StandardCharsets.UTF_8).split("\r?\n")) {
+			if (line.isEmpty() || line.equals(HEADER)) continue;
+			CsvRow row = CsvRow.fromCsv(line);
+			if (row != null) rows.add(row);
+		}
+		return rows;
+	}
+
+	/**
+	 * A game as it is recorded in the CSV file
+	 */
+	static final class CsvRow {
+		final String mrXAi;
+		final String detectiveAi;
+		final long seed;
+		// MRX, DETECTIVES or NONE
+		final String winner;
+		final int rounds;
+		final String forfeit;
+		final long[] mrXMoveMicros;
+		final long[] detectiveMoveMicros;
+
+		private CsvRow(String mrXAi, String detectiveAi, long seed, String winner, int rounds,
+		                   String forfeit, long[] mrXMoveMicros, long[] detectiveMoveMicros) {
+			this.mrXAi = mrXAi;
+			this.detectiveAi = detectiveAi;
+			this.seed = seed;
+			this.winner = winner;
+			this.rounds = rounds;
+			this.forfeit = forfeit;
+			this.mrXMoveMicros = mrXMoveMicros;
+			this.detectiveMoveMicros = detectiveMoveMicros;
+		}
+
+		static CsvRow of(String mrXAi, String detectiveAi, GameResult result) {
+			String winner = result.mrXWon() ? "MRX" : result.detectivesWon() ? "DETECTIVES" : "NONE";
+			return new CsvRow(mrXAi, detectiveAi, result.seed(), winner, result.rounds(),
+					result.forfeit().orElse(""),
+					LongStream.of(result.mrXMoveNanos()).map(n -> n / 1000).toArray(),
+					LongStream.of(result.detectiveMoveNanos()).map(n -> n / 1000).toArray());
+		}
+
+		static MatchupStats stats(String mrXAi, String detectiveAi, List<CsvRow> games) {
+			int mrXWins = 0, detectiveWins = 0, forfeits = 0;
+			long rounds = 0;
+			List<Long> mrXMicros = new ArrayList<>();
+			List<Long> detectiveMicros = new ArrayList<>();
+			for (CsvRow game : games) {
+				if (game.winner.equals("MRX")) mrXWins++;
+				if (game.winner.equals("DETECTIVES")) detectiveWins++;
+				if (!game.forfeit.isEmpty()) forfeits++;
+				rounds += game.rounds;
+				mrXMicros.addAll(Longs.asList(game.mrXMoveMicros));
+				detectiveMicros.addAll(Longs.asList(game.detectiveMoveMicros));
+			}
+			return new MatchupStats(mrXAi, detectiveAi, games.size(), mrXWins, detectiveWins,
+					forfeits, rounds, Longs.toArray(mrXMicros), Longs.toArray(detectiveMicros));
+		}
+
+		String toCsv() {
+			return String.join(",", quote(mrXAi), quote(detectiveAi), Long.toString(seed), winner,
+					Integer.toString(rounds), quote(forfeit),
+					join(mrXMoveMicros), join(detectiveMoveMicros));
+		}
+
+		// Returns null for a line that isn't a complete row
+		static CsvRow fromCsv(String line) {
+			List<String> fields = split(line);
+			if (fields == null || fields.size() != 8) return null;
+			try {
+				return new CsvRow(fields.get(0), fields.get(1), Long.parseLong(fields.get(2)),
+						fields.get(3), Integer.parseInt(fields.get(4)), fields.get(5),
+						parse(fields.get(6)), parse(fields.get(7)));
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		private static String join(long[] values) {
+			return LongStream.of(values).mapToObj(Long::toString).collect(Collectors.joining(";"));
+		}
+
+		private static long[] parse(String values) {
+			if (values.isEmpty()) return new long[0];
+			String[] parts = values.split(";");
+			long[] parsed = new long[parts.length];
+			for (int i = 0; i < parts.length; i++) parsed[i] = Long.parseLong(parts[i]);
+			return parsed;
+		}
+
+		private static String quote(String value) {
+			String line = value.replace('\n', ' ').replace('\r', ' ');
+			if (!line.contains(",") && !line.contains("\"")) return line;
+			return '"' + line.replace("\"", "\"\"") + '"';
+		}
+
+		// Splits a CSV line written by toCsv(); null if a quote is left open
+		private static List<String> split(String line) {
+			List<String> fields = new ArrayList<>();
+			StringBuilder field = new StringBuilder();
+			boolean quoted = false;
+			for (int i = 0; i < line.length(); i++) {
+				char c = line.charAt(i);
+				if (quoted) {
+					if (c != '"') field.append(c);
+					else if (i + 1 < line.length() && line.charAt(i + 1) == '"') field.append(line.charAt(++i));
+					else quoted = false;
+				} else if (c == '"') quoted = true;
+				else if (c == ',') {
+					fields.add(field.toString());
+					field.setLength(0);
+				} else field.append(c);
+			}
+			if (quoted) return null;
+			fields.add(field.toString());
+			return fields;
+		}
+	}
+
+	/**
+	 * Runs a tournament between all Ais on the classpath.
+	 * <br>
+	 * Arguments are {@code --out=<csv file>} (tournament.csv), {@code --games=<games per matchup>}
+	 * (100), {@code --seed=<first seed>} (0), {@code --threads=<threads>} (available processors),
+	 * {@code --timeout=<seconds per move>} (15), {@code --detectives=<count>} (5) and
+	 * {@code --archive=<archive file>}, which adds the games played to a {@link GameArchive} (none).
+	 *
+	 * @param args the arguments
+	 * @throws Exception if the tournament could not be run
+	 */
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new LinkedHashMap<>();
+		for (String arg : args) {
+			if (!arg.startsWith("--") || !arg.contains("="))
+				throw new IllegalArgumentException("Expected --name=value, got " + arg);
+			options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+		}
+		Path out = Paths.get(options.getOrDefault("out", "tournament.csv"));
+		int games = Integer.parseInt(options.getOrDefault("games", "100"));
+		long seed = Long.parseLong(options.getOrDefault("seed", "0"));
+		int threads = Integer.parseInt(options.getOrDefault("threads",
+				Integer.toString(Runtime.getRuntime().availableProcessors())));
+		Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "15")));
+		int detectives = Integer.parseInt(options.getOrDefault("detectives", "5"));
+
+		var tournament = new Tournament(new PackedGameStateFactory(),
+				new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS),
+				HeadlessRunner.standardPlayers(detectives), discoverAis(), timeout);
+		List<Long> seeds = LongStream.range(seed, seed + games).boxed().collect(Collectors.toList());
+		String archive = options.get("archive");
+		var results = archive == null
+				? tournament.run(out, seeds, threads)
+				: tournament.run(out, Paths.get(archive), seeds, threads);
+		for (MatchupStats stats : results) System.out.println(stats);
+	}
+}
@@ -3,6 +3,8 @@ package uk.ac.bris.cs.scotlandyard.model;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import javax.annotation.Nonnull;
@@ -74,6 +76,32 @@ public interface Board {
 		 * {@link #getAvailableMoves()}
 		 */
 		@Nonnull GameState advance(Move move);
+
+		/**
+		 * The default follows MrX's travel log from every node of the graph and only leaves out the
+		 * nodes detectives are on now, as the board doesn't say where they were earlier. Game states of this model keep the exact set
+		 * up to date in {@link #advance(Move)}, so theirs is O(1).
+		 *
+		 * @return the nodes MrX could be on as the detectives see it: consistent with his travel log
+		 * and not occupied by a detective; see {@link LocationSet}
+		 */
+		@Nonnull default LocationSet getMrXPossibleLocations() {
+			return LocationSet.followLog(getSetup(), getMrXTravelLog()).without(getDetectiveOccupancy());
+		}
+
+		/**
+		 * The default collects {@link #getDetectiveLocation(Detective)} of every detective. Game
+		 * states of this model keep the set up to date in {@link #advance(Move)}, so theirs is O(1).
+		 *
+		 * @return the nodes the detectives are on, where checking whether a node is occupied is a
+		 * single bit test
+		 */
+		@Nonnull default LocationSet getDetectiveOccupancy() {
+			List<Integer> locations = new ArrayList<>();
+			for (Piece piece : getPlayers())
+				if (piece.isDetective()) getDetectiveLocation((Detective) piece).ifPresent(locations::add);
+			return LocationSet.of(locations);
+		}
 	}
 
 
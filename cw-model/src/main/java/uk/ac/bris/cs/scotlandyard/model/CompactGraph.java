@@ -0,0 +1,148 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.MapMaker;
+import com.google.common.graph.ValueGraph;
+
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * An immutable, int-indexed (CSR) copy of the ScotlandYard game graph.
+ * <br>
+ * Edges are stored in both directions; the outgoing edges of a node are the indices in
+ * [{@link #firstEdge(int)}, {@link #endEdge(int)}), each with a {@link #target(int)} and a
+ * bitmask of {@link Transport}s (see {@link #mask(Transport)}). Iterating neighbours this way
+ * does not box node ids or touch any hash table.
+ * <br>
+ * Use {@link #of(ValueGraph)} or {@link GameSetup#compactGraph()} to obtain instances.
+ */
+public final class CompactGraph {
+
+	private static final Transport[] TRANSPORTS = Transport.values();
+
+	// graphs are immutable, so the compact copy is shared by identity for as long as the graph lives
+	private static final ConcurrentMap<ValueGraph<Integer, ImmutableSet<Transport>>, CompactGraph>
+			CACHE = new MapMaker().weakKeys().makeMap();
+
+	private final int nodeCount;
+	private final int[] offsets;
+	private final int[] targets;
+	private final byte[] transports;
+
+	private CompactGraph(int nodeCount, int[] offsets, int[] targets, byte[] transports) {
+		this.nodeCount = nodeCount;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.transports = transports;
+	}
+
+	/**
+	 * @param graph the game graph
+	 * @return the compact form of the given graph; built once per graph instance
+	 */
+	@Nonnull public static CompactGraph of(
+			@Nonnull ValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		return CACHE.computeIfAbsent(graph, CompactGraph::build);
+	}
+
+	private static CompactGraph build(ValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		int maxNode = 0;
+		for (int node : graph.nodes()) {
+			if (node < 0) throw new IllegalArgumentException("Negative node " + node);
+			maxNode = Math.max(maxNode, node);
+		}
+		int[] offsets = new int[maxNode + 2];
+		for (int node : graph.nodes()) offsets[node + 1] = graph.adjacentNodes(node).size();
+		for (int i = 1; i < offsets.length; i++) offsets[i] += offsets[i - 1];
+
+		int[] targets = new int[offsets[offsets.length - 1]];
+		byte[] transports = new byte[targets.length];
+		for (int node : graph.nodes()) {
+			int edge = offsets[node];
+			for (int adjacent : graph.adjacentNodes(node)) {
+				targets[edge] = adjacent;
+				int mask = 0;
+				for (Transport t : graph.edgeValueOrDefault(node, adjacent, ImmutableSet.of()))
+					mask |= mask(t);
+				transports[edge++] = (byte) mask;
+			}
+		}
+		return new CompactGraph(graph.nodes().size(), offsets, targets, transports);
+	}
+
+	/**
+	 * @param transport the transport
+	 * @return the bit representing the given transport in {@link #transports(int)}
+	 */
+	public static int mask(@Nonnull Transport transport) { return 1 << transport.ordinal(); }
+
+	/**
+	 * @param mask a transport bitmask from {@link #transports(int)}
+	 * @param ticket the ticket
+	 * @return whether any of the transports in the mask can be travelled with the given ticket;
+	 * {@link Ticket#SECRET} travels on all transports
+	 */
+	public static boolean accepts(int mask, @Nonnull Ticket ticket) {
+		if (ticket == Ticket.SECRET) return mask != 0;
+		for (Transport t : TRANSPORTS)
+			if ((mask & mask(t)) != 0 && t.requiredTicket() == ticket) return true;
+		return false;
+	}
+
+	/**
+	 * @return the number of nodes in the graph
+	 */
+	public int nodeCount() { return nodeCount; }
+	/**
+	 * @return the largest node id; arrays indexed by node should have this length + 1
+	 */
+	public int maxNode() { return offsets.length - 2; }
+	/**
+	 * @return the number of directed edges, i.e twice the number of undirected edges
+	 */
+	public int edgeCount() { return targets.length; }
+	/**
+	 * @param node the node
+	 * @return the number of nodes adjacent to the given node; 0 if the node is not in the graph
+	 */
+	public int degree(int node) { return endEdge(node) - firstEdge(node); }
+	/**
+	 * @param node the node
+	 * @return the index of the first outgoing edge of the given node
+	 */
+	public int firstEdge(int node) {
+		return node >= 0 && node < offsets.length - 1 ? offsets[node] : 0;
+	}
+	/**
+	 * @param node the node
+	 * @return one past the index of the last outgoing edge of the given node
+	 */
+	public int endEdge(int node) {
+		return node >= 0 && node < offsets.length - 1 ? offsets[node + 1] : 0;
+	}
+	/**
+	 * @param edge the edge index
+	 * @return the node the given edge leads to
+	 */
+	public int target(int edge) { return targets[edge]; }
+	/**
+	 * @param edge the edge index
+	 * @return the bitmask of transports on the given edge, see {@link #mask(Transport)}
+	 */
+	public int transports(int edge) { return transports[edge]; }
+	/**
+	 * @param source the source node
+	 * @param destination the destination node
+	 * @return the bitmask of transports between the two nodes; 0 if they are not adjacent
+	 */
+	public int transportsBetween(int source, int destination) {
+		for (int e = firstEdge(source), end = endEdge(source); e < end; e++)
+			if (targets[e] == destination) return transports[e];
+		return 0;
+	}
+}
@@ -0,0 +1,134 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.MapMaker;
+import com.google.common.graph.ValueGraph;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * All-pairs hop distances of a ScotlandYard game graph.
+ * <br>
+ * Distances are computed once with a breadth first search from every node over the
+ * {@link CompactGraph} and kept in a flat matrix indexed by node id, so lookups are O(1) and don't
+ * box. A distance oracle can be restricted to a set of transports, in which case only edges
+ * served by at least one of them are travelled.
+ * <br>
+ * Use {@link #of(ValueGraph)} or {@link #of(ValueGraph, Transport...)} to obtain instances.
+ */
+public final class DistanceOracle {
+
+	/**
+	 * The distance between nodes that cannot reach each other
+	 */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private static final int ALL_TRANSPORTS = (1 << Transport.values().length) - 1;
+
+	// oracles are shared by graph identity and transport mask, like CompactGraph
+	private static final ConcurrentMap<ValueGraph<Integer, ImmutableSet<Transport>>,
+			ConcurrentMap<Integer, DistanceOracle>> CACHE = new MapMaker().weakKeys().makeMap();
+
+	private final int size;
+	private final int transports;
+	// exactly one of these is used; bytes unless a distance does not fit in an unsigned byte
+	private final byte[] bytes;
+	private final short[] shorts;
+
+	private DistanceOracle(int size, int transports, byte[] bytes, short[] shorts) {
+		this.size = size;
+		this.transports = transports;
+		this.bytes = bytes;
+		this.shorts = shorts;
+	}
+
+	/**
+	 * @param graph the game graph
+	 * @return the distance oracle over all transports of the given graph; built once per graph
+	 */
+	@Nonnull public static DistanceOracle of(
+			@Nonnull ValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		return of(graph, ALL_TRANSPORTS);
+	}
+
+	/**
+	 * @param graph the game graph
+	 * @param transports the transports that may be travelled
+	 * @return the distance oracle of the given graph restricted to the given transports; built once
+	 * per graph and set of transports
+	 */
+	@Nonnull public static DistanceOracle of(
+			@Nonnull ValueGraph<Integer, ImmutableSet<Transport>> graph,
+			@Nonnull Transport... transports) {
+		int mask = 0;
+		for (Transport t : transports) mask |= CompactGraph.mask(t);
+		return of(graph, mask);
+	}
+
+	// Oracle over the transports in the given mask, see CompactGraph#mask(Transport)
+	static DistanceOracle of(ValueGraph<Integer, ImmutableSet<Transport>> graph, int mask) {
+		return CACHE.computeIfAbsent(graph, g -> new ConcurrentHashMap<>())
+				.computeIfAbsent(mask, m -> build(CompactGraph.of(graph), m));
+	}
+
+	private static DistanceOracle build(CompactGraph graph, int transports) {
+		final int size = graph.maxNode() + 1;
+		final int[] distances = new int[size * size];
+		final int[] queue = new int[size];
+		int max = 0;
+		for (int source = 0; source < size; source++) {
+			final int row = source * size;
+			for (int i = 0; i < size; i++) distances[row + i] = -1;
+			if (graph.degree(source) == 0) continue;
+			distances[row + source] = 0;
+			int head = 0, tail = 0;
+			queue[tail++] = source;
+			while (head < tail) {
+				int node = queue[head++];
+				int next = distances[row + node] + 1;
+				for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++) {
+					int target = graph.target(e);
+					if ((graph.transports(e) & transports) == 0 || distances[row + target] >= 0) continue;
+					distances[row + target] = next;
+					max = Math.max(max, next);
+					queue[tail++] = target;
+				}
+			}
+		}
+		// -1 marks unreachable pairs, stored as the all-ones pattern of the element type
+		if (max < 0xFF) {
+			byte[] bytes = new byte[distances.length];
+			for (int i = 0; i < distances.length; i++) bytes[i] = (byte) distances[i];
+			return new DistanceOracle(size, transports, bytes, null);
+		}
+		short[] shorts = new short[distances.length];
+		for (int i = 0; i < distances.length; i++) shorts[i] = (short) distances[i];
+		return new DistanceOracle(size, transports, null, shorts);
+	}
+
+	/**
+	 * @param transport the transport
+	 * @return whether this oracle travels edges served by the given transport
+	 */
+	public boolean travels(@Nonnull Transport transport) {
+		return (transports & CompactGraph.mask(transport)) != 0;
+	}
+
+	/**
+	 * @param source the source node
+	 * @param destination the destination node
+	 * @return the fewest edges between the two nodes; {@link #UNREACHABLE} if there is no path or
+	 * either node is not in the graph or has no edges
+	 */
+	public int distance(int source, int destination) {
+		if (source < 0 || source >= size || destination < 0 || destination >= size) return UNREACHABLE;
+		int index = source * size + destination;
+		int distance = bytes != null ? bytes[index] & 0xFF : shorts[index] & 0xFFFF;
+		return distance == (bytes != null ? 0xFF : 0xFFFF) ? UNREACHABLE : distance;
+	}
+}
@@ -0,0 +1,205 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+/**
+ * A read only view of an archive of {@link GameRecord}s, mapped into memory so any game can be
+ * read without reading the ones before it.
+ * <br>
+ * An archive is a data file holding the games one after the other in the {@link GameRecord}
+ * format, and an index file next to it, named after it with {@code .idx} added, holding where
+ * each game ends in the data file as a long; each game starts where the one before ends. Games
+ * are numbered in the order they were added, from 0. {@link #append(Path)} adds games to an
+ * archive; as a game's data is written before its index entry, a game cut short by a crash is
+ * left out of the archive and written over by the next game added.
+ * <br>
+ * Each file is mapped as one buffer, so neither can be larger than {@link Integer#MAX_VALUE}
+ * bytes. Instances are thread safe.
+ */
+public final class GameArchive {
+
+	private final ByteBuffer data;
+	// where each game ends
+	private final LongBuffer ends;
+
+	private GameArchive(ByteBuffer data, LongBuffer ends) {
+		this.data = data;
+		this.ends = ends;
+	}
+
+	/**
+	 * @param file the data file of the archive
+	 * @return the index file of the archive
+	 */
+	@Nonnull public static Path index(@Nonnull Path file) {
+		return file.resolveSibling(file.getFileName() + ".idx");
+	}
+
+	/**
+	 * @param file the data file of the archive; the index file must be next to it
+	 * @return the archive, holding the games added up to now
+	 * @throws IOException if the files could not be read or are too large
+	 */
+	@Nonnull public static GameArchive open(@Nonnull Path file) throws IOException {
+		ByteBuffer data = map(file);
+		LongBuffer ends = map(index(file)).asLongBuffer();
+		int games = ends.limit();
+		if (games > 0 && ends.get(games - 1) > data.limit())
+			throw new IOException("Index points past the end of " + file);
+		return new GameArchive(data, ends);
+	}
+
+	private static ByteBuffer map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) throw new IOException(file + " is too large to map");
+			// the mapping stays valid after the channel is closed
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/**
+	 * @param file the data file of the archive, created with its index if it doesn't exist
+	 * @return a writer adding games at the end of the archive
+	 * @throws IOException if the files could not be opened
+	 */
+	@Nonnull public static Writer append(@Nonnull Path file) throws IOException {
+		return new Writer(file);
+	}
+
+	/**
+	 * @return the number of games in the archive
+	 */
+	public int size() { return ends.limit(); }
+
+	/**
+	 * @param game the id of the game
+	 * @return the game
+	 * @throws IOException if the game's data is not a game record
+	 */
+	@Nonnull public GameRecord game(int game) throws IOException {
+		return GameRecord.read(stream(game)).orElseThrow(() -> new IOException("No data for game " + game));
+	}
+
+	/**
+	 * Replays a game up to a ply, see {@link GameRecord#replay(Factory, GameSetup, int)}
+	 *
+	 * @param game the id of the game
+	 * @param plies the number of moves to replay
+	 * @param factory the game state factory to replay with
+	 * @param setup the setup the game was played with
+	 * @return the state after the given number of moves of the game
+	 * @throws IOException if the game's data is not a game record
+	 */
+	@Nonnull public GameState replay(int game, int plies,
+	                                 @Nonnull Factory<GameState> factory,
+	                                 @Nonnull GameSetup setup) throws IOException {
+		return game(game).replay(factory, setup, plies);
+	}
+
+	// the data of a game, read through a buffer of its own so threads don't share a position
+	private InputStream stream(int game) {
+		Objects.checkIndex(game, size());
+		ByteBuffer buffer = data.duplicate();
+		buffer.limit((int) ends.get(game));
+		buffer.position(game == 0 ? 0 : (int) ends.get(game - 1));
+		return new InputStream() {
+			@Override public int read() {
+				return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+			}
+			@Override public int read(byte[] bytes, int offset, int length) {
+				if (!buffer.hasRemaining()) return length == 0 ? 0 : -1;
+				length = Math.min(length, buffer.remaining());
+				buffer.get(bytes, offset, length);
+				return length;
+			}
+		};
+	}
+
+	/**
+	 * Adds games to the end of an archive. Archives opened after a game is added hold it.
+	 */
+	public static final class Writer implements Closeable {
+		private final FileChannel data;
+		private final FileChannel index;
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		private Writer(Path file) throws IOException {
+			FileChannel data = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			FileChannel index = null;
+			try {
+				index = FileChannel.open(index(file),
+						StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			} finally {
+				if (index == null) data.close();
+			}
+			this.data = data;
+			this.index = index;
+			try {
+				truncate(file);
+			} catch (IOException | RuntimeException e) {
+				close();
+				throw e;
+			}
+		}
+
+		private void truncate(Path file) throws IOException {
+			// anything after the last indexed game was cut short and is written over
+			long games = index.size() / Long.BYTES;
+			long end = 0;
+			if (games > 0) {
+				ByteBuffer last = ByteBuffer.allocate(Long.BYTES);
+				index.read(last, (games - 1) * Long.BYTES);
+				end = last.flip().getLong();
+			}
+			if (end > data.size()) throw new IOException("Index points past the end of " + file);
+			index.truncate(games * Long.BYTES);
+			data.truncate(end);
+			data.position(end);
+			index.position(games * Long.BYTES);
+		}
+
+		/**
+		 * @param record the game to add
+		 * @throws IOException if the archive could not be written to
+		 */
+		public void add(@Nonnull GameRecord record) throws IOException {
+			bytes.reset();
+			record.write(bytes);
+			ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+			while (buffer.hasRemaining()) data.write(buffer);
+			ByteBuffer end = ByteBuffer.allocate(Long.BYTES).putLong(data.position()).flip();
+			while (end.hasRemaining()) index.write(end);
+		}
+
+		/**
+		 * Forces the games added to the storage device
+		 *
+		 * @throws IOException if the archive could not be written to
+		 */
+		public void flush() throws IOException {
+			data.force(false);
+			index.force(false);
+		}
+
+		@Override public void close() throws IOException {
+			try (data; index) {
+				flush();
+			}
+		}
+	}
+}
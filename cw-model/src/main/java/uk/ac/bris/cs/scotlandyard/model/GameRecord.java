@@ -0,0 +1,281 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * A recorded game: the reveal rounds, the starting players and the moves played, as
+ * {@link MoveCode}s.
+ * <br>
+ * The binary format is a header followed by the moves and an end byte, so a stream can hold any
+ * number of games one after the other. The header is a magic int and a version byte, the number
+ * of rounds as a short followed by the reveal rounds a bit each, then the number of players as a
+ * byte and for each player, MrX first, its piece (0 for MrX, 1 + ordinal for detectives) as a
+ * byte, its location as a short, the {@link Ticket}s in its {@link Player#tickets()} as a byte
+ * with a bit per ordinal and the count of each of those tickets, by ordinal, as shorts; players
+ * read back equal to the ones written. A single move is a byte holding the piece and the ticket
+ * followed by the destination as a short, three bytes in all; a double move is a byte with the
+ * double move flag and both tickets followed by both destinations, five bytes in all. Sources are
+ * left out as replaying knows where every piece is.
+ * <br>
+ * Use {@link GameRecorder} to write games as they are played and {@link #read(InputStream)} to
+ * read them back.
+ */
+public final class GameRecord {
+
+	private static final int MAGIC = 0x53594752; // SYGR
+	private static final int VERSION = 2;
+	private static final int DOUBLE = 0x80;
+	// a double move with tickets that don't exist
+	private static final int END = 0xFF;
+	private static final int PIECES = 1 + Piece.Detective.values().length;
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	/**
+	 * MrX's reveal rounds, see {@link GameSetup#rounds}
+	 */
+	public final ImmutableList<Boolean> rounds;
+	/**
+	 * MrX at the start of the game
+	 */
+	public final Player mrX;
+	/**
+	 * The detectives at the start of the game
+	 */
+	public final ImmutableList<Player> detectives;
+	private final long[] moves;
+
+	/**
+	 * @param rounds MrX's reveal rounds
+	 * @param mrX MrX at the start of the game
+	 * @param detectives the detectives at the start of the game
+	 * @param moves the {@link MoveCode}s of the moves played, in order
+	 */
+	public GameRecord(@Nonnull ImmutableList<Boolean> rounds,
+	                  @Nonnull Player mrX,
+	                  @Nonnull ImmutableList<Player> detectives,
+	                  @Nonnull long[] moves) {
+		this.rounds = Objects.requireNonNull(rounds);
+		this.mrX = Objects.requireNonNull(mrX);
+		this.detectives = Objects.requireNonNull(detectives);
+		this.moves = moves.clone();
+	}
+
+	/**
+	 * @return the number of moves played
+	 */
+	public int size() { return moves.length; }
+
+	/**
+	 * @param ply the index of the move, from 0
+	 * @return the {@link MoveCode} of the move
+	 */
+	public long move(int ply) { return moves[ply]; }
+
+	/**
+	 * @return the {@link MoveCode}s of the moves played, in order
+	 */
+	@Nonnull public long[] moves() { return moves.clone(); }
+
+	/**
+	 * See {@link #replay(Factory, GameSetup, int)}
+	 *
+	 * @param factory the game state factory to replay with
+	 * @param setup the setup the game was played with
+	 * @return the state after every recorded move
+	 */
+	@Nonnull public GameState replay(@Nonnull Factory<GameState> factory, @Nonnull GameSetup setup) {
+		return replay(factory, setup, moves.length);
+	}
+
+	/**
+	 * Replays the game through {@link GameState#advance(Move)} with the setup's shared
+	 * {@link MoveTable} moves
+	 *
+	 * @param factory the game state factory to replay with
+	 * @param setup the setup the game was played with
+	 * @param plies the number of moves to replay
+	 * @return the state after the given number of moves
+	 * @throws IllegalArgumentException if the setup has different reveal rounds
+	 */
+	@Nonnull public GameState replay(@Nonnull Factory<GameState> factory, @Nonnull GameSetup setup, int plies) {
+		if (!setup.rounds.equals(rounds))
+			throw new IllegalArgumentException("Setup has different rounds: " + setup.rounds);
+		if (plies < 0 || plies > moves.length)
+			throw new IllegalArgumentException("Plies out of range: " + plies);
+		MoveTable table = setup.moveTable();
+		GameState state = factory.build(setup, mrX, detectives);
+		for (int ply = 0; ply < plies; ply++) state = state.advance(table.move(moves[ply]));
+		return state;
+	}
+
+	/**
+	 * @param out the stream to write to; not closed
+	 * @throws IOException if the stream could not be written to
+	 */
+	public void write(@Nonnull OutputStream out) throws IOException {
+		var data = new DataOutputStream(out);
+		writeHeader(data, rounds, mrX, detectives);
+		for (long move : moves) writeMove(data, move);
+		writeEnd(data);
+		data.flush();
+	}
+
+	/**
+	 * Reads the next game of a stream. A stream that ends after a move ends the game, so the
+	 * games of a recording cut short can still be read.
+	 *
+	 * @param in the stream to read from; not closed
+	 * @return the next game, or empty if the stream has ended
+	 * @throws IOException if the stream could not be read or does not hold a game record
+	 */
+	@Nonnull public static Optional<GameRecord> read(@Nonnull InputStream in) throws IOException {
+		var data = new DataInputStream(in);
+		int first = data.read();
+		if (first < 0) return Optional.empty();
+		int magic = first << 24 | data.readUnsignedByte() << 16 | data.readUnsignedShort();
+		if (magic != MAGIC) throw new IOException("Not a game record");
+		int version = data.readUnsignedByte();
+		if (version != VERSION) throw new IOException("Unknown game record version " + version);
+		var rounds = readRounds(data);
+		Player mrX = null;
+		var detectives = ImmutableList.<Player>builder();
+		// where each piece is, by piece index, so moves can be given their sources
+		int[] locations = new int[PIECES];
+		for (int i = 0, players = data.readUnsignedByte(); i < players; i++) {
+			Player player = readPlayer(data);
+			locations[MoveCode.index(player.piece())] = player.location();
+			if (player.isMrX()) mrX = player;
+			else detectives.add(player);
+		}
+		if (mrX == null) throw new IOException("Game record without MrX");
+		long[] moves = new long[32];
+		int size = 0;
+		for (int header; (header = data.read()) != END && header >= 0; ) {
+			long move = readMove(data, header, locations);
+			if (size == moves.length) moves = Arrays.copyOf(moves, size * 2);
+			moves[size++] = move;
+		}
+		return Optional.of(new GameRecord(rounds, mrX, detectives.build(), Arrays.copyOf(moves, size)));
+	}
+
+	static void writeHeader(DataOutput out, List<Boolean> rounds, Player mrX, List<Player> detectives)
+			throws IOException {
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeShort(rounds.size());
+		for (int i = 0; i < rounds.size(); i += 8) {
+			int bits = 0;
+			for (int j = i; j < Math.min(i + 8, rounds.size()); j++) if (rounds.get(j)) bits |= 1 << (j - i);
+			out.writeByte(bits);
+		}
+		out.writeByte(1 + detectives.size());
+		writePlayer(out, mrX);
+		for (Player detective : detectives) writePlayer(out, detective);
+	}
+
+	private static void writePlayer(DataOutput out, Player player) throws IOException {
+		out.writeByte(MoveCode.index(player.piece()));
+		out.writeShort(player.location());
+		int present = 0;
+		for (Ticket ticket : player.tickets().keySet()) present |= 1 << ticket.ordinal();
+		out.writeByte(present);
+		for (Ticket ticket : TICKETS)
+			if ((present & 1 << ticket.ordinal()) != 0) out.writeShort(player.count(ticket));
+	}
+
+	static void writeMove(DataOutput out, long move) throws IOException {
+		if (MoveCode.isDouble(move)) {
+			out.writeByte(DOUBLE | MoveCode.ticket1(move).ordinal() << 3 | MoveCode.ticket(move).ordinal());
+			out.writeShort(MoveCode.destination1(move));
+		} else {
+			out.writeByte(MoveCode.index(MoveCode.piece(move)) << 3 | MoveCode.ticket(move).ordinal());
+		}
+		out.writeShort(MoveCode.destination(move));
+	}
+
+	static void writeEnd(DataOutput out) throws IOException { out.writeByte(END); }
+
+	private static ImmutableList<Boolean> readRounds(DataInput in) throws IOException {
+		int size = in.readUnsignedShort();
+		var rounds = ImmutableList.<Boolean>builderWithExpectedSize(size);
+		for (int i = 0; i < size; i += 8) {
+			int bits = in.readUnsignedByte();
+			for (int j = i; j < Math.min(i + 8, size); j++) rounds.add((bits & 1 << (j - i)) != 0);
+		}
+		return rounds.build();
+	}
+
+	private static Player readPlayer(DataInput in) throws IOException {
+		int piece = in.readUnsignedByte();
+		if (piece >= PIECES) throw new IOException("Unknown piece " + piece);
+		int location = in.readUnsignedShort();
+		int present = in.readUnsignedByte();
+		if (present >>> TICKETS.length != 0) throw new IOException("Unknown tickets " + present);
+		var tickets = ImmutableMap.<Ticket, Integer>builderWithExpectedSize(Integer.bitCount(present));
+		for (Ticket ticket : TICKETS)
+			if ((present & 1 << ticket.ordinal()) != 0) tickets.put(ticket, in.readUnsignedShort());
+		return new Player(MoveCode.pieceAt(piece), tickets.build(), location);
+	}
+
+	private static long readMove(DataInput in, int header, int[] locations) throws IOException {
+		try {
+			long move;
+			if ((header & DOUBLE) != 0) {
+				Ticket ticket1 = ticket(header >>> 3 & 0x7);
+				Ticket ticket2 = ticket(header & 0x7);
+				int destination1 = in.readUnsignedShort();
+				move = MoveCode.doubleMove(locations[0], ticket1, destination1, ticket2, in.readUnsignedShort());
+			} else {
+				int piece = header >>> 3 & 0x7;
+				if (piece >= PIECES) throw new IOException("Unknown piece " + piece);
+				Ticket ticket = ticket(header & 0x7);
+				move = MoveCode.single(MoveCode.pieceAt(piece), locations[piece], ticket, in.readUnsignedShort());
+			}
+			locations[MoveCode.index(MoveCode.piece(move))] = MoveCode.destination(move);
+			return move;
+		} catch (EOFException e) {
+			throw new IOException("Game record ends inside a move", e);
+		}
+	}
+
+	private static Ticket ticket(int ordinal) throws IOException {
+		if (ordinal >= TICKETS.length) throw new IOException("Unknown ticket " + ordinal);
+		return TICKETS[ordinal];
+	}
+
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		GameRecord that = (GameRecord) o;
+		return rounds.equals(that.rounds) && mrX.equals(that.mrX) &&
+				detectives.equals(that.detectives) && Arrays.equals(moves, that.moves);
+	}
+
+	@Override public int hashCode() {
+		return 31 * Objects.hash(rounds, mrX, detectives) + Arrays.hashCode(moves);
+	}
+
+	@Override public String toString() {
+		return "GameRecord{mrX=" + mrX + ", detectives=" + detectives + ", moves=" + moves.length + "}";
+	}
+}
@@ -0,0 +1,120 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+/**
+ * Writes a game in the {@link GameRecord} format while it is played: the header when the recorder
+ * is created, each move as it is made and the end byte when the game ends.
+ * <br>
+ * {@link #recording(Factory, OutputStream)} wraps a model factory so every game played through
+ * {@link Model#chooseMove(Move)} is written to a stream. Buffer file streams, as the recorder
+ * writes a few bytes at a time.
+ */
+public final class GameRecorder {
+
+	private final DataOutputStream out;
+	private boolean ended;
+
+	/**
+	 * Writes the header of the game
+	 *
+	 * @param out the stream to write to; not closed
+	 * @param setup the game setup
+	 * @param mrX MrX at the start of the game
+	 * @param detectives the detectives at the start of the game
+	 * @throws IOException if the stream could not be written to
+	 */
+	public GameRecorder(@Nonnull OutputStream out,
+	                    @Nonnull GameSetup setup,
+	                    @Nonnull Player mrX,
+	                    @Nonnull List<Player> detectives) throws IOException {
+		this.out = new DataOutputStream(Objects.requireNonNull(out));
+		GameRecord.writeHeader(this.out, setup.rounds, mrX, detectives);
+	}
+
+	/**
+	 * @param move the move made
+	 * @throws IOException if the stream could not be written to
+	 * @throws IllegalStateException if the game has ended
+	 */
+	public void record(@Nonnull Move move) throws IOException {
+		if (ended) throw new IllegalStateException("Game already ended");
+		GameRecord.writeMove(out, MoveCode.of(move));
+	}
+
+	/**
+	 * Ends the game and flushes the stream; does nothing if the game has already ended
+	 *
+	 * @throws IOException if the stream could not be written to
+	 */
+	public void end() throws IOException {
+		if (ended) return;
+		ended = true;
+		GameRecord.writeEnd(out);
+		out.flush();
+	}
+
+	/**
+	 * Models of the returned factory write their game to the stream, ending it once the board has
+	 * a winner or no moves left. Each move is written before the model is told about it, so moves
+	 * its observers choose in turn follow it; moves that aren't available throw
+	 * {@link IllegalArgumentException} and are not written. Games are written as they are played,
+	 * so only play one game at a time per stream.
+	 *
+	 * @param original the factory making the models to record
+	 * @param out the stream to write to; not closed
+	 * @return a factory of models recording their games
+	 */
+	@Nonnull public static Factory<Model> recording(@Nonnull Factory<Model> original,
+	                                                @Nonnull OutputStream out) {
+		Objects.requireNonNull(original);
+		Objects.requireNonNull(out);
+		return (setup, mrX, detectives) -> {
+			var model = original.build(setup, mrX, detectives);
+			var recorder = uncheck(() -> new GameRecorder(out, setup, mrX, detectives));
+			return new Model() {
+				@Nonnull @Override public Board getCurrentBoard() { return model.getCurrentBoard(); }
+				@Override public void registerObserver(@Nonnull Observer observer) {
+					model.registerObserver(observer);
+				}
+				@Override public void unregisterObserver(@Nonnull Observer observer) {
+					model.unregisterObserver(observer);
+				}
+				@Nonnull @Override public ImmutableSet<Observer> getObservers() { return model.getObservers(); }
+				@Override public void chooseMove(@Nonnull Move move) {
+					if (!model.getCurrentBoard().getAvailableMoves().contains(move))
+						throw new IllegalArgumentException("Illegal move: " + move);
+					// recorded before the model tells its observers, which may choose the next move
+					uncheck(() -> { recorder.record(move); return null; });
+					model.chooseMove(move);
+					Board board = model.getCurrentBoard();
+					if (!board.getWinner().isEmpty() || board.getAvailableMoves().isEmpty())
+						uncheck(() -> { recorder.end(); return null; });
+				}
+			};
+		};
+	}
+
+	private interface IOSupplier<T> {
+		T get() throws IOException;
+	}
+
+	private static <T> T uncheck(IOSupplier<T> supplier) {
+		try {
+			return supplier.get();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -25,11 +25,29 @@ public final class GameSetup implements Serializable {
 	 * MrX reveal rounds; false is hidden, true is reveal
 	 */
 	public final ImmutableList<Boolean> rounds;
+	private transient volatile CompactGraph compactGraph;
+	private transient volatile MoveTable moveTable;
 	public GameSetup(@Nonnull ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph,
 	                 @Nonnull ImmutableList<Boolean> rounds) {
 		this.graph = Objects.requireNonNull(graph);
 		this.rounds = Objects.requireNonNull(rounds);
 	}
+	/**
+	 * @return {@link #graph} as a {@link CompactGraph}, built on first use
+	 */
+	@Nonnull public CompactGraph compactGraph() {
+		var compact = compactGraph;
+		if (compact == null) compactGraph = compact = CompactGraph.of(graph);
+		return compact;
+	}
+	/**
+	 * @return the shared moves of this setup, built on first use
+	 */
+	@Nonnull public MoveTable moveTable() {
+		var table = moveTable;
+		if (table == null) moveTable = table = new MoveTable(compactGraph());
+		return table;
+	}
 	@Override public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
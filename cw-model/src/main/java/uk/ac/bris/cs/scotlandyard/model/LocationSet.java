@@ -0,0 +1,211 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * An immutable set of nodes stored as a bitset with a bit per node.
+ * <br>
+ * {@link #contains(int)} and {@link #size()} are O(1). Game states use it for the nodes MrX could
+ * be on and the nodes detectives are on, see {@link Board.GameState#getMrXPossibleLocations()} and
+ * {@link Board.GameState#getDetectiveOccupancy()}. Ais that track MrX themselves can follow his
+ * travel log the same way with {@link #start} and {@link #follow(CompactGraph, LogEntry, LocationSet)}.
+ */
+public final class LocationSet {
+
+	private static final LocationSet EMPTY = new LocationSet(new long[0]);
+
+	private final long[] words;
+	private final int size;
+
+	private LocationSet(long[] words) {
+		this.words = words;
+		int size = 0;
+		for (long word : words) size += Long.bitCount(word);
+		this.size = size;
+	}
+
+	/**
+	 * @param nodes the nodes
+	 * @return a set of the given nodes; negative nodes are ignored
+	 */
+	@Nonnull public static LocationSet of(@Nonnull Iterable<Integer> nodes) {
+		int max = -1;
+		for (int node : nodes) max = Math.max(max, node);
+		if (max < 0) return EMPTY;
+		long[] words = new long[(max >>> 6) + 1];
+		for (int node : nodes) if (node >= 0) words[node >>> 6] |= 1L << node;
+		return new LocationSet(words);
+	}
+
+	/**
+	 * @param node the node
+	 * @return a set of only the given node
+	 */
+	@Nonnull public static LocationSet of(int node) {
+		if (node < 0) return EMPTY;
+		long[] words = new long[(node >>> 6) + 1];
+		words[node >>> 6] = 1L << node;
+		return new LocationSet(words);
+	}
+
+	/**
+	 * Where MrX starts is hidden and setups may start him on any node, so this only uses what the
+	 * detectives know
+	 *
+	 * @param setup the game setup
+	 * @param occupied where the detectives start
+	 * @return the nodes MrX could start on as the detectives see it: every node not occupied
+	 */
+	@Nonnull public static LocationSet start(@Nonnull GameSetup setup, @Nonnull LocationSet occupied) {
+		return of(setup.graph.nodes()).without(occupied);
+	}
+
+	/**
+	 * @param setup the game setup
+	 * @param log MrX's travel log
+	 * @return the nodes MrX could be on after the given log, starting from {@link #start} but not
+	 * knowing where the detectives were; see {@link Board.GameState#getMrXPossibleLocations()}
+	 */
+	@Nonnull static LocationSet followLog(@Nonnull GameSetup setup, @Nonnull List<LogEntry> log) {
+		LocationSet possible = start(setup, EMPTY);
+		for (LogEntry entry : log) possible = possible.follow(setup.compactGraph(), entry, EMPTY);
+		return possible;
+	}
+
+	/**
+	 * @param graph the graph
+	 * @param entry MrX's next travel log entry
+	 * @param occupied where the detectives are
+	 * @return where MrX could be after the given entry, given he could be on any node in this set
+	 */
+	@Nonnull public LocationSet follow(@Nonnull CompactGraph graph, @Nonnull LogEntry entry, @Nonnull LocationSet occupied) {
+		return entry.location().isPresent()
+				? of(entry.location().get())
+				: follow(graph, entry.ticket(), occupied);
+	}
+
+	/**
+	 * @param graph the graph
+	 * @param ticket the ticket travelled with
+	 * @param occupied nodes that cannot be travelled to
+	 * @return the nodes reachable from any node in this set with one move using the given ticket
+	 */
+	@Nonnull public LocationSet follow(@Nonnull CompactGraph graph, @Nonnull Ticket ticket, @Nonnull LocationSet occupied) {
+		int accepted = 0;
+		for (Transport t : Transport.values())
+			if (ticket == Ticket.SECRET || t.requiredTicket() == ticket) accepted |= CompactGraph.mask(t);
+		long[] next = new long[(graph.maxNode() >>> 6) + 1];
+		for (int word = 0; word < words.length; word++) {
+			for (long bits = words[word]; bits != 0; bits &= bits - 1) {
+				int node = word << 6 | Long.numberOfTrailingZeros(bits);
+				for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++) {
+					if ((graph.transports(e) & accepted) == 0) continue;
+					int target = graph.target(e);
+					next[target >>> 6] |= 1L << target;
+				}
+			}
+		}
+		for (int word = 0; word < Math.min(next.length, occupied.words.length); word++)
+			next[word] &= ~occupied.words[word];
+		return new LocationSet(next);
+	}
+
+	/**
+	 * @param from the node to leave out
+	 * @param to the node to add
+	 * @return this set with one node moved, such as a detective's
+	 */
+	@Nonnull LocationSet move(int from, int to) {
+		long[] next = Arrays.copyOf(words, Math.max(words.length, (to >>> 6) + 1));
+		if (from >= 0 && from >>> 6 < next.length) next[from >>> 6] &= ~(1L << from);
+		if (to >= 0) next[to >>> 6] |= 1L << to;
+		return new LocationSet(next);
+	}
+
+	/**
+	 * @param other the nodes to leave out
+	 * @return the nodes of this set not in the other
+	 */
+	@Nonnull public LocationSet without(@Nonnull LocationSet other) {
+		long[] next = words.clone();
+		for (int word = 0; word < Math.min(next.length, other.words.length); word++)
+			next[word] &= ~other.words[word];
+		return new LocationSet(next);
+	}
+
+	/**
+	 * @param node the node
+	 * @return this set without the given node; this instance if the node is not in it
+	 */
+	@Nonnull LocationSet without(int node) {
+		if (!contains(node)) return this;
+		long[] next = words.clone();
+		next[node >>> 6] &= ~(1L << node);
+		return new LocationSet(next);
+	}
+
+	/**
+	 * @param node the node
+	 * @return whether the node is in this set
+	 */
+	public boolean contains(int node) {
+		return node >= 0 && node >>> 6 < words.length && (words[node >>> 6] & 1L << node) != 0;
+	}
+
+	/**
+	 * @return the number of nodes in this set
+	 */
+	public int size() { return size; }
+
+	/**
+	 * @return whether this set has no nodes
+	 */
+	public boolean isEmpty() { return size == 0; }
+
+	/**
+	 * @return the nodes in this set in ascending order
+	 */
+	@Nonnull public int[] toArray() {
+		int[] nodes = new int[size];
+		int i = 0;
+		for (int word = 0; word < words.length; word++)
+			for (long bits = words[word]; bits != 0; bits &= bits - 1)
+				nodes[i++] = word << 6 | Long.numberOfTrailingZeros(bits);
+		return nodes;
+	}
+
+	/**
+	 * @return the nodes in this set in ascending order
+	 */
+	@Nonnull public ImmutableSet<Integer> toSet() {
+		var set = ImmutableSet.<Integer>builderWithExpectedSize(size);
+		for (int node : toArray()) set.add(node);
+		return set.build();
+	}
+
+	// trailing zero words do not change the set
+	private int length() {
+		int length = words.length;
+		while (length > 0 && words[length - 1] == 0) length--;
+		return length;
+	}
+
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		LocationSet that = (LocationSet) o;
+		return size == that.size && Arrays.equals(words, 0, length(), that.words, 0, that.length());
+	}
+
+	@Override public int hashCode() { return Arrays.hashCode(Arrays.copyOf(words, length())); }
+
+	@Override public String toString() { return toSet().toString(); }
+}
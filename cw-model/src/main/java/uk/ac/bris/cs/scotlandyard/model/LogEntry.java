@@ -12,12 +12,26 @@ import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
  * A POJO representing log entries of the MrX's travel log.
  * <br>
  * Use the static factory methods {@link #hidden(Ticket)} and {@link #reveal(Ticket, int)} to
- * create new instances.
+ * obtain instances. They return shared instances for hidden entries and for reveals of locations
+ * up to {@value #INTERNED}, so building logs does not allocate; equal entries in that range are
+ * the same instance.
  */
 public final class LogEntry implements Serializable {
 	private static final long serialVersionUID = -6468835796153329259L;
 	// because Java's stupid Optional isn't intend to be used as a field...
 	private static final int HIDDEN = -1;
+	private static final int INTERNED = 255;
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final LogEntry[] HIDDEN_ENTRIES = new LogEntry[TICKETS.length];
+	// by ticket * (INTERNED + 1) + location
+	private static final LogEntry[] REVEALED_ENTRIES = new LogEntry[TICKETS.length * (INTERNED + 1)];
+	static {
+		for (Ticket ticket : TICKETS) {
+			HIDDEN_ENTRIES[ticket.ordinal()] = new LogEntry(ticket, HIDDEN);
+			for (int location = 0; location <= INTERNED; location++)
+				REVEALED_ENTRIES[ticket.ordinal() * (INTERNED + 1) + location] = new LogEntry(ticket, location);
+		}
+	}
 	private final Ticket ticket;
 	private final int location;
 	/**
@@ -25,7 +39,7 @@ public final class LogEntry implements Serializable {
 	 * @return a log entry of a hidden round for Mrx
 	 */
 	public static LogEntry hidden(
-			@Nonnull Ticket ticket) { return new LogEntry(ticket, HIDDEN); }
+			@Nonnull Ticket ticket) { return HIDDEN_ENTRIES[ticket.ordinal()]; }
 	/**
 	 * @param ticket the ticket used in this entry
 	 * @param location the location MrX is at during this reveal round
@@ -33,7 +47,9 @@ public final class LogEntry implements Serializable {
 	 */
 	public static LogEntry reveal(@Nonnull Ticket ticket, int location) {
 		if (location == HIDDEN) throw new IllegalArgumentException();
-		return new LogEntry(ticket, location);
+		return location >= 0 && location <= INTERNED
+				? REVEALED_ENTRIES[ticket.ordinal() * (INTERNED + 1) + location]
+				: new LogEntry(ticket, location);
 	}
 	private LogEntry(@Nonnull Ticket ticket, int location) {
 		this.ticket = Objects.requireNonNull(ticket);
@@ -55,5 +71,10 @@ public final class LogEntry implements Serializable {
 		LogEntry logEntry = (LogEntry) o;
 		return location == logEntry.location && ticket == logEntry.ticket;
 	}
-	@Override public int hashCode() { return Objects.hash(ticket, location); }
+	// Objects.hash(ticket, location) without the varargs array
+	@Override public int hashCode() { return 31 * (31 + ticket.hashCode()) + location; }
+	// deserialised entries are replaced by the shared instances
+	private Object readResolve() {
+		return location == HIDDEN ? hidden(ticket) : reveal(ticket, location);
+	}
 }
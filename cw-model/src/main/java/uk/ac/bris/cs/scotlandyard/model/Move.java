@@ -106,7 +106,10 @@ public interface Move extends Serializable {
 			return source == that.source && destination == that.destination &&
 					piece == that.piece && ticket == that.ticket;
 		}
-		@Override public int hashCode() { return Objects.hash(piece, ticket, destination); }
+		// Objects.hash(piece, ticket, destination) without the varargs array
+		@Override public int hashCode() {
+			return 31 * (31 * (31 + piece.hashCode()) + ticket.hashCode()) + destination;
+		}
 		@Override public String toString() {
 			return ticket.name() + "(" + piece + "@" + source + ", " + destination + ")";
 		}
@@ -158,8 +161,13 @@ public interface Move extends Serializable {
 					ticket1 == that.ticket1 && destination1 == that.destination1 &&
 					ticket2 == that.ticket2 && destination2 == that.destination2;
 		}
+		// Objects.hash(piece, ticket1, destination1, ticket2, destination2) without the varargs array
 		@Override public int hashCode() {
-			return Objects.hash(piece, ticket1, destination1, ticket2, destination2);
+			int hash = 31 + piece.hashCode();
+			hash = 31 * hash + ticket1.hashCode();
+			hash = 31 * hash + destination1;
+			hash = 31 * hash + ticket2.hashCode();
+			return 31 * hash + destination2;
 		}
 		@Override public String toString() {
 			return "x2(" + piece + "@" + source + ", " + ticket1 + ", " + destination1 + ", " + ticket2 + ", " + destination2 + ")";
@@ -0,0 +1,149 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Moves packed into a long, for code that stores or compares many moves without allocating.
+ * <br>
+ * Bits 0-15 are the (last) destination, 16-31 the source, 32-47 the first destination of a double
+ * move, 48-50 the (last) ticket, 51-53 the first ticket of a double move, 54-56 the piece (0 for
+ * MrX, 1 + ordinal for detectives) and bit 57 is set for double moves. Codes are never negative,
+ * so {@link #NONE} can stand for no move. Equal moves have equal codes.
+ * <br>
+ * Nodes are limited to {@value #NODE_MASK}. {@link MoveTable#move(long)} turns a code back into
+ * the shared {@link Move} instance of a game setup.
+ */
+public final class MoveCode {
+
+	/**
+	 * Not the code of any move
+	 */
+	public static final long NONE = -1;
+
+	static final int NODE_MASK = 0xFFFF;
+	private static final int TICKET_MASK = 0x7;
+	private static final int SOURCE = 16;
+	private static final int DESTINATION1 = 32;
+	private static final int TICKET = 48;
+	private static final int TICKET1 = 51;
+	private static final int PIECE = 54;
+	private static final long DOUBLE = 1L << 57;
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final Detective[] DETECTIVES = Detective.values();
+
+	private MoveCode() {}
+
+	static int index(Piece piece) {
+		return piece.isMrX() ? 0 : 1 + ((Detective) piece).ordinal();
+	}
+
+	static Piece pieceAt(int index) {
+		return index == 0 ? Piece.MrX.MRX : DETECTIVES[index - 1];
+	}
+
+	private static long node(int node) {
+		if (node < 0 || node > NODE_MASK) throw new IllegalArgumentException("Node out of range: " + node);
+		return node;
+	}
+
+	/**
+	 * @param piece the piece making the move
+	 * @param source where the move starts
+	 * @param ticket the ticket
+	 * @param destination where the move ends
+	 * @return the code of the single move
+	 */
+	public static long single(@Nonnull Piece piece, int source, @Nonnull Ticket ticket, int destination) {
+		return (long) index(piece) << PIECE | (long) ticket.ordinal() << TICKET
+				| node(source) << SOURCE | node(destination);
+	}
+
+	/**
+	 * @param source where the move starts
+	 * @param ticket1 the first ticket
+	 * @param destination1 the first destination
+	 * @param ticket2 the second ticket
+	 * @param destination2 the second destination
+	 * @return the code of MrX's double move
+	 */
+	public static long doubleMove(int source,
+	                              @Nonnull Ticket ticket1, int destination1,
+	                              @Nonnull Ticket ticket2, int destination2) {
+		return DOUBLE | (long) ticket1.ordinal() << TICKET1 | (long) ticket2.ordinal() << TICKET
+				| node(source) << SOURCE | node(destination1) << DESTINATION1 | node(destination2);
+	}
+
+	/**
+	 * @param move the move
+	 * @return the code of the given move
+	 */
+	public static long of(@Nonnull Move move) {
+		return move.visit(new Move.Visitor<Long>() {
+			@Override public Long visit(SingleMove m) {
+				return single(m.commencedBy(), m.source(), m.ticket, m.destination);
+			}
+			@Override public Long visit(DoubleMove m) {
+				if (!m.commencedBy().isMrX()) throw new IllegalArgumentException("Double move by " + m.commencedBy());
+				return doubleMove(m.source(), m.ticket1, m.destination1, m.ticket2, m.destination2);
+			}
+		});
+	}
+
+	/**
+	 * @param code a move code
+	 * @return a new move for the given code; prefer {@link MoveTable#move(long)}, which shares them
+	 */
+	@Nonnull public static Move toMove(long code) {
+		return isDouble(code)
+				? new DoubleMove(piece(code), source(code),
+						ticket1(code), destination1(code), ticket(code), destination(code))
+				: new SingleMove(piece(code), source(code), ticket(code), destination(code));
+	}
+
+	/**
+	 * @param code a move code
+	 * @return whether the code is of a double move
+	 */
+	public static boolean isDouble(long code) { return (code & DOUBLE) != 0; }
+	/**
+	 * @param code a move code
+	 * @return the piece making the move
+	 */
+	@Nonnull public static Piece piece(long code) { return pieceAt((int) (code >>> PIECE) & TICKET_MASK); }
+	/**
+	 * @param code a move code
+	 * @return where the move starts
+	 */
+	public static int source(long code) { return (int) (code >>> SOURCE) & NODE_MASK; }
+	/**
+	 * @param code a move code
+	 * @return where the move ends, i.e the second destination of a double move
+	 */
+	public static int destination(long code) { return (int) code & NODE_MASK; }
+	/**
+	 * @param code a move code
+	 * @return the ticket of a single move or the second ticket of a double move
+	 */
+	@Nonnull public static Ticket ticket(long code) {
+		return TICKETS[(int) (code >>> TICKET) & TICKET_MASK];
+	}
+	/**
+	 * @param code a move code
+	 * @return the first destination of a double move, else the destination
+	 */
+	public static int destination1(long code) {
+		return isDouble(code) ? (int) (code >>> DESTINATION1) & NODE_MASK : destination(code);
+	}
+	/**
+	 * @param code a move code
+	 * @return the first ticket of a double move, else the ticket
+	 */
+	@Nonnull public static Ticket ticket1(long code) {
+		return isDouble(code) ? TICKETS[(int) (code >>> TICKET1) & TICKET_MASK] : ticket(code);
+	}
+}
@@ -0,0 +1,200 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * The {@link Move} instances of a game setup, so generating moves does not allocate them.
+ * <br>
+ * Moves are looked up by the {@link CompactGraph} edges they travel along, which move generators
+ * already iterate, or by {@link MoveCode}. Each move is created on first use and the same
+ * instance is returned from then on. Use {@link GameSetup#moveTable()} to obtain instances.
+ * <br>
+ * For move generation, the table also keeps {@link Template}s: the moves a piece could make from
+ * a node given which tickets it holds, so generating moves is going through a precomputed array
+ * and leaving out the moves onto detectives.
+ * <br>
+ * Instances are thread safe. Two threads asking for a move or template for the first time at once
+ * may get different but equal instances.
+ */
+public final class MoveTable {
+
+	private static final int PIECES = 1 + Detective.values().length;
+	private static final Ticket[] TICKETS = Ticket.values();
+	// tickets masks are a bit per ticket ordinal; DOUBLE never travels along an edge
+	private static final int MASKS = 1 << TICKETS.length;
+	private static final int TRAVEL = MASKS - 1 & ~(1 << Ticket.DOUBLE.ordinal());
+	private static final Template NONE = new Template(new Move[0], new int[0], new int[0]);
+
+	/**
+	 * The moves a piece could make from a node with some tickets, before leaving out the moves
+	 * onto or through a detective
+	 */
+	static final class Template {
+		final Move[] moves;
+		// the node each move passes through and the node it ends on; the same for single moves
+		final int[] middles;
+		final int[] destinations;
+
+		private Template(Move[] moves, int[] middles, int[] destinations) {
+			this.moves = moves;
+			this.middles = middles;
+			this.destinations = destinations;
+		}
+	}
+
+	private final CompactGraph graph;
+	// the node each edge starts from
+	private final int[] sources;
+	// by (piece * edges + edge) * tickets + ticket
+	private final Move[] singles;
+	// the double moves starting with an edge come after pairs[edge] * tickets^2, by the second
+	// edge's place among the first edge's target's edges, then the first and the second ticket
+	private final int[] pairs;
+	// created on the first double move, as only MrX makes them and only in some games
+	private volatile Move[] doubles;
+	// by (piece * nodes + node) * masks + tickets
+	private final Template[] singleTemplates;
+	// by (node * masks + tickets held) * masks + tickets held twice; created on first use
+	private volatile Template[] doubleTemplates;
+
+	MoveTable(@Nonnull CompactGraph graph) {
+		this.graph = graph;
+		this.sources = new int[graph.edgeCount()];
+		for (int node = 0; node <= graph.maxNode(); node++)
+			for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++) sources[e] = node;
+		this.singles = new Move[PIECES * graph.edgeCount() * TICKETS.length];
+		this.pairs = new int[graph.edgeCount() + 1];
+		for (int e = 0; e < graph.edgeCount(); e++) pairs[e + 1] = pairs[e] + graph.degree(graph.target(e));
+		this.singleTemplates = new Template[PIECES * (graph.maxNode() + 1) * MASKS];
+	}
+
+	/**
+	 * @param piece the piece moving
+	 * @param node where the piece is
+	 * @param tickets the tickets the piece holds, a bit per {@link Ticket#ordinal()}
+	 * @return the single moves the piece could make if no node was occupied, by edge then ticket
+	 */
+	Template singleTemplate(Piece piece, int node, int tickets) {
+		if (node < 0 || node > graph.maxNode()) return NONE;
+		tickets &= TRAVEL;
+		int index = (MoveCode.index(piece) * (graph.maxNode() + 1) + node) * MASKS + tickets;
+		Template template = singleTemplates[index];
+		if (template != null) return template;
+		int size = 0;
+		Move[] moves = new Move[graph.degree(node) * TICKETS.length];
+		for (int e = graph.firstEdge(node), end = graph.endEdge(node); e < end; e++) {
+			for (Ticket ticket : TICKETS)
+				if ((tickets & 1 << ticket.ordinal()) != 0 && CompactGraph.accepts(graph.transports(e), ticket))
+					moves[size++] = single(piece, e, ticket);
+		}
+		int[] destinations = new int[size];
+		for (int i = 0; i < size; i++) destinations[i] = ((SingleMove) moves[i]).destination;
+		template = new Template(Arrays.copyOf(moves, size), destinations, destinations);
+		singleTemplates[index] = template;
+		return template;
+	}
+
+	/**
+	 * @param node where MrX is
+	 * @param once the tickets MrX holds at least one of, a bit per {@link Ticket#ordinal()}
+	 * @param twice the tickets MrX holds at least two of
+	 * @return the double moves MrX could make if no node was occupied, by edges then tickets
+	 */
+	Template doubleTemplate(int node, int once, int twice) {
+		if (node < 0 || node > graph.maxNode()) return NONE;
+		once &= TRAVEL;
+		twice &= once;
+		Template[] templates = doubleTemplates;
+		if (templates == null)
+			doubleTemplates = templates = new Template[(graph.maxNode() + 1) * MASKS * MASKS];
+		int index = (node * MASKS + once) * MASKS + twice;
+		Template template = templates[index];
+		if (template != null) return template;
+		List<Move> moves = new ArrayList<>();
+		for (int e1 = graph.firstEdge(node), end1 = graph.endEdge(node); e1 < end1; e1++) {
+			int middle = graph.target(e1);
+			for (int e2 = graph.firstEdge(middle), end2 = graph.endEdge(middle); e2 < end2; e2++) {
+				for (Ticket first : TICKETS) {
+					if ((once & 1 << first.ordinal()) == 0 || !CompactGraph.accepts(graph.transports(e1), first))
+						continue;
+					for (Ticket second : TICKETS) {
+						if (((first == second ? twice : once) & 1 << second.ordinal()) == 0) continue;
+						if (!CompactGraph.accepts(graph.transports(e2), second)) continue;
+						moves.add(doubleMove(e1, first, e2, second));
+					}
+				}
+			}
+		}
+		int[] middles = new int[moves.size()];
+		int[] destinations = new int[moves.size()];
+		for (int i = 0; i < moves.size(); i++) {
+			DoubleMove move = (DoubleMove) moves.get(i);
+			middles[i] = move.destination1;
+			destinations[i] = move.destination2;
+		}
+		template = new Template(moves.toArray(new Move[0]), middles, destinations);
+		templates[index] = template;
+		return template;
+	}
+
+	/**
+	 * @param piece the piece making the move
+	 * @param edge the {@link CompactGraph} edge travelled along
+	 * @param ticket the ticket
+	 * @return the single move
+	 */
+	@Nonnull public Move single(@Nonnull Piece piece, int edge, @Nonnull Ticket ticket) {
+		int index = (MoveCode.index(piece) * sources.length + edge) * TICKETS.length + ticket.ordinal();
+		Move move = singles[index];
+		if (move == null) singles[index] = move = new SingleMove(piece, sources[edge], ticket, graph.target(edge));
+		return move;
+	}
+
+	/**
+	 * @param edge1 the {@link CompactGraph} edge travelled along first
+	 * @param ticket1 the first ticket
+	 * @param edge2 the edge travelled along second; must start where the first edge ends
+	 * @param ticket2 the second ticket
+	 * @return MrX's double move
+	 */
+	@Nonnull public Move doubleMove(int edge1, @Nonnull Ticket ticket1, int edge2, @Nonnull Ticket ticket2) {
+		int middle = graph.target(edge1);
+		int second = edge2 - graph.firstEdge(middle);
+		if (second < 0 || edge2 >= graph.endEdge(middle))
+			throw new IllegalArgumentException("Edge " + edge2 + " does not start at " + middle);
+		Move[] doubles = this.doubles;
+		if (doubles == null) this.doubles = doubles = new Move[pairs[pairs.length - 1] * TICKETS.length * TICKETS.length];
+		int index = ((pairs[edge1] + second) * TICKETS.length + ticket1.ordinal()) * TICKETS.length + ticket2.ordinal();
+		Move move = doubles[index];
+		if (move == null) doubles[index] = move = new DoubleMove(Piece.MrX.MRX, sources[edge1],
+				ticket1, middle, ticket2, graph.target(edge2));
+		return move;
+	}
+
+	/**
+	 * @param code a move code, see {@link MoveCode}
+	 * @return the move with the given code
+	 * @throws IllegalArgumentException if the move's nodes are not adjacent in the graph
+	 */
+	@Nonnull public Move move(long code) {
+		int edge = edge(MoveCode.source(code), MoveCode.destination1(code));
+		if (!MoveCode.isDouble(code)) return single(MoveCode.piece(code), edge, MoveCode.ticket(code));
+		return doubleMove(edge, MoveCode.ticket1(code),
+				edge(MoveCode.destination1(code), MoveCode.destination(code)), MoveCode.ticket(code));
+	}
+
+	private int edge(int source, int destination) {
+		for (int e = graph.firstEdge(source), end = graph.endEdge(source); e < end; e++)
+			if (graph.target(e) == destination) return e;
+		throw new IllegalArgumentException(source + " and " + destination + " are not adjacent");
+	}
+}
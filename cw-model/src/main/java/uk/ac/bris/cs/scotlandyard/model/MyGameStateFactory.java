@@ -4,7 +4,6 @@ import com.google.common.collect.ImmutableList;
 
 import javax.annotation.Nonnull;
 
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import javafx.util.Pair;
 import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
@@ -23,23 +22,32 @@ import java.util.Set;
  */
 public final class MyGameStateFactory implements Factory<GameState> {
 
-	private final static class MyGameState implements GameState {
+	private static final Transport[] TRANSPORTS = Transport.values();
+
+	private final static class MyGameState implements GameState, Zobrist.Keyed {
 		private final GameSetup setup;
 		private final ImmutableSet<Piece> remaining;
-		private final ImmutableList<LogEntry> log;
+		private final TravelLog log;
 		private final Player mrX;
 		private final List<Player> detectives;
 		private final ImmutableList<Player> everyone;
-		private final ImmutableSet<Move> moves;
 		private final ImmutableSet<Piece> winner;
-		private int round;
+		private final int round;
+		private final long zobristKey;
+		private final LocationSet mrXPossibleLocations;
+		private final LocationSet occupancy;
+		// Generated on the first call to getAvailableMoves()
+		private ImmutableSet<Move> moves;
 
 		private MyGameState(
 				final GameSetup setup,
 				final ImmutableSet<Piece> remaining,
-				final ImmutableList<LogEntry> log,
+				final TravelLog log,
 				final Player mrX,
-				final List<Player> detectives) {
+				final List<Player> detectives,
+				final long zobristKey,
+				final LocationSet mrXPossibleLocations,
+				final LocationSet occupancy) {
 
 			checkPlayerAttributes(mrX, detectives);
 			checkSetup(setup);
@@ -55,27 +63,10 @@ public final class MyGameStateFactory implements Factory<GameState> {
 			ImmutableList<Player> everyone = ImmutableList.copyOf(listEveryone);
 			this.everyone = everyone;
 
-			ImmutableSet<Move> allMoves = ImmutableSet.of();
-			for (Player player : everyone) {
-				if (remaining.contains(player.piece())) {
-					ImmutableSet<SingleMove> singleMoves = makeSingleMoves(setup, detectives, player, player.location());
-					allMoves = ImmutableSet.<Move>builder()
-							.addAll(singleMoves)
-							.addAll(allMoves)
-							.build();
-				}
-			}
-			if (remaining.contains(MrX.MRX)) {
-				ImmutableSet<DoubleMove> doubleMoves = makeDoubleMoves(setup, detectives, mrX, mrX.location());
-				allMoves = ImmutableSet.<Move>builder()
-						.addAll(doubleMoves)
-						.addAll(allMoves)
-						.build();
-			}
-
-			this.moves = allMoves;
-
 			this.round = log.size();
+			this.zobristKey = zobristKey;
+			this.mrXPossibleLocations = mrXPossibleLocations;
+			this.occupancy = occupancy;
 
 			this.winner = checkGameOver();
 
@@ -109,6 +100,15 @@ public final class MyGameStateFactory implements Factory<GameState> {
 
 		// Determines whether there is a winner and returns it
 		private ImmutableSet<Piece> checkGameOver() {
+			ArrayList<Piece> winningDetectives = new ArrayList<>();
+			for (Player detective : detectives) {
+				winningDetectives.add(detective.piece());
+			}
+			// Detectives win if MrX is captured, even by the last move of the game
+			for (Player detective : detectives) {
+				if (detective.location() == mrX.location()) return ImmutableSet.copyOf(winningDetectives);
+			}
+
 			// mrX wins if:
 			// 1. Detectives have no more tickets left
 			boolean ticketsLeft = false;
@@ -116,133 +116,93 @@ public final class MyGameStateFactory implements Factory<GameState> {
 				ticketsLeft = detectiveHasAnyTicket(detective, ticketsLeft);
 			}
 			if (!ticketsLeft) return ImmutableSet.of(MrX.MRX);
-			// 2. No more rounds left
-			else if (round == setup.rounds.size()) return ImmutableSet.of(MrX.MRX);
+			// 2. No more rounds left and the detectives have finished the last one
+			else if (round == setup.rounds.size() && remaining.contains(MrX.MRX)) return ImmutableSet.of(MrX.MRX);
 
-			// Detectives win if:
-			ArrayList<Piece> winningDetectives = new ArrayList<>();
-			for (Player detective : detectives) {
-				winningDetectives.add(detective.piece());
-			}
-			// 1. MrX is cornered and cannot make a move
-			boolean mrXHasAnyMoves = false;
-			for (Move move : moves) {
-				if (move.commencedBy() == MrX.MRX) mrXHasAnyMoves = true;
-			}
-			if (mrXHasAnyMoves == false && remaining.contains(MrX.MRX)) {
+			// Detectives win if MrX is cornered and cannot make a move
+			if (remaining.contains(MrX.MRX) && !hasAnySingleMove(setup, occupancy, mrX, mrX.location())) {
 				return ImmutableSet.copyOf(winningDetectives);
 			}
-			// 2. MrX is captured
-			for (Player detective : detectives) {
-				if (detective.location() == mrX.location()) return ImmutableSet.copyOf(winningDetectives);
-			}
 
 			// Otherwise the game continues
 			return ImmutableSet.of();
 		}
 
-		// Works out all possible single moves for all players and returns an Immutable set of all the moves
-		private static ImmutableSet<SingleMove> makeSingleMoves(
-				GameSetup setup,
-				List<Player> detectives,
-				Player player,
-				int source){
-			final var singleMoves = new ArrayList<SingleMove>();
-			for (int destination : setup.graph.adjacentNodes(source)) {
-				boolean occupied = checkIfOccupied(destination, detectives);
-				for(Transport t : setup.graph.edgeValueOrDefault(source,destination,ImmutableSet.of())) {
-					if (player.has(t.requiredTicket()) && !occupied) {
-						SingleMove newMove = new SingleMove(player.piece(), source, t.requiredTicket(), destination);
-						singleMoves.add(newMove);
-					}
-				}
-				if (player.isMrX() && player.has(Ticket.SECRET) && !occupied) {
-					SingleMove newMove = new SingleMove(player.piece(), source, Ticket.SECRET, destination);
-					singleMoves.add(newMove);
+		// Generates all moves for the remaining players in a single pass
+		private ImmutableSet<Move> makeMoves() {
+			final var allMoves = ImmutableSet.<Move>builder();
+			for (Player player : everyone) {
+				if (remaining.contains(player.piece())) {
+					makeSingleMoves(setup, occupancy, player, player.location(), allMoves);
 				}
 			}
-			return ImmutableSet.copyOf(singleMoves);
-		}
-
-		//Checks if given position is occupied by another detective
-		private static boolean checkIfOccupied(int destination, List<Player> detectives) {
-			for (Player detective : detectives) {
-				if (detective.location() == destination) {
-					return true;
-				}
+			if (remaining.contains(MrX.MRX) && setup.rounds.size() - round >= 2) {
+				makeDoubleMoves(setup, occupancy, mrX, mrX.location(), allMoves);
 			}
-			return false;
+			return allMoves.build();
 		}
 
-		// Finds all the possible paths through unoccupied nodes from the given source
-		private static ArrayList<Pair<Integer, Integer>> findPaths(
+		// Works out all possible single moves for the given player and adds them to the given builder
+		private static void makeSingleMoves(
 				GameSetup setup,
-				List<Player> detectives,
-				int source) {
-			ArrayList<Pair<Integer, Integer>> paths = new ArrayList<>();
-			for (int destination : setup.graph.adjacentNodes(source)) {
-				boolean occupied = checkIfOccupied(destination, detectives);
-				if (!occupied) {
-					for (int destination2 : setup.graph.adjacentNodes(destination)) {
-						occupied = checkIfOccupied(destination2, detectives);
-						if (!occupied) {
-							Pair<Integer, Integer> path = new Pair<>(destination, destination2);
-							paths.add(path);
-						}
-					}
-				}
-			}
-			return paths;
+				LocationSet occupancy,
+				Player player,
+				int source,
+				ImmutableSet.Builder<Move> singleMoves){
+			addUnoccupied(setup.moveTable().singleTemplate(player.piece(), source, ticketMask(player, 1)),
+					occupancy, singleMoves);
 		}
 
-		// Checks if player has required ticket for second move and adds it to the list
-		private static void addSecondMove(int source, int destination1, int destination2, int count, Player player,
-										  Ticket ticket1, Ticket ticket2, ArrayList<DoubleMove> doubleMoves) {
+		// The tickets the player holds at least the given number of, a bit per ticket
+		private static int ticketMask(Player player, int atLeast) {
+			int mask = 0;
+			for (Ticket ticket : Ticket.values()) {
+				if (player.hasAtLeast(ticket, atLeast)) mask |= 1 << ticket.ordinal();
+			}
+			return mask;
+		}
 
-			if ((ticket2 == ticket1 && count >= 2) || (ticket2 != ticket1 && player.has(ticket2))) {
-				DoubleMove newMove = new DoubleMove(player.piece(), source, ticket1, destination1, ticket2, destination2);
-				doubleMoves.add(newMove);
+		// Adds the moves of the template that don't pass through or end on a detective
+		private static void addUnoccupied(
+				MoveTable.Template template,
+				LocationSet occupancy,
+				ImmutableSet.Builder<Move> moves) {
+			for (int i = 0; i < template.moves.length; i++) {
+				if (occupancy.contains(template.middles[i])) continue;
+				if (occupancy.contains(template.destinations[i])) continue;
+				moves.add(template.moves[i]);
 			}
 		}
 
-		// Works out all possible double moves for mrX
-		private static ImmutableSet<DoubleMove> makeDoubleMoves(
+		// Checks whether the given player has at least one single move, stopping at the first one found
+		private static boolean hasAnySingleMove(
 				GameSetup setup,
-				List<Player> detectives,
+				LocationSet occupancy,
 				Player player,
 				int source) {
-			if (!player.has(Ticket.DOUBLE) || setup.rounds.size() == 1) return ImmutableSet.of();
-			final var doubleMoves = new ArrayList<DoubleMove>();
-			ArrayList<Pair<Integer, Integer>> paths = findPaths(setup, detectives, source);
-
-			for (Pair<Integer, Integer> path : paths) {
-				for(Transport t1 : setup.graph.edgeValueOrDefault(source,path.getKey(),ImmutableSet.of())) {
-					int count = player.tickets().getOrDefault(t1.requiredTicket(), 0);
-					if (count >= 1) {
-						for(Transport t2 : setup.graph.edgeValueOrDefault(path.getKey(), path.getValue(), ImmutableSet.of())) {
-							addSecondMove(source, path.getKey(), path.getValue(), count, player,
-									t1.requiredTicket(), t2.requiredTicket(), doubleMoves);
-							// First ticket is SECRET
-							if (player.has(Ticket.SECRET)) {
-								addSecondMove(source, path.getKey(), path.getValue(), count, player,
-										Ticket.SECRET, t2.requiredTicket(), doubleMoves);
-							}
-						}
-						// Second ticket is SECRET
-						if (player.has(Ticket.SECRET)) {
-							addSecondMove(source, path.getKey(), path.getValue(), count, player,
-									t1.requiredTicket(), Ticket.SECRET, doubleMoves);
-						}
-						// Both tickets are SECRET
-						if (player.tickets().getOrDefault(Ticket.SECRET, 0) >= 2) {
-							addSecondMove(source, path.getKey(), path.getValue(), count, player,
-									Ticket.SECRET, Ticket.SECRET, doubleMoves);
-						}
-					}
+			final CompactGraph graph = setup.compactGraph();
+			final boolean secret = player.isMrX() && player.has(Ticket.SECRET);
+			for (int edge = graph.firstEdge(source), end = graph.endEdge(source); edge < end; edge++) {
+				if (occupancy.contains(graph.target(edge))) continue;
+				if (secret) return true;
+				int transports = graph.transports(edge);
+				for (Transport t : TRANSPORTS) {
+					if ((transports & CompactGraph.mask(t)) != 0 && player.has(t.requiredTicket())) return true;
 				}
 			}
+			return false;
+		}
 
-			return ImmutableSet.copyOf(doubleMoves);
+		// Works out all possible double moves for mrX, every path through unoccupied nodes from the given source
+		private static void makeDoubleMoves(
+				GameSetup setup,
+				LocationSet occupancy,
+				Player player,
+				int source,
+				ImmutableSet.Builder<Move> doubleMoves) {
+			if (!player.has(Ticket.DOUBLE)) return;
+			addUnoccupied(setup.moveTable().doubleTemplate(source, ticketMask(player, 1), ticketMask(player, 2)),
+					occupancy, doubleMoves);
 		}
 
 		@Override @Nonnull
@@ -261,7 +221,7 @@ public final class MyGameStateFactory implements Factory<GameState> {
 		}
 
 		@Override public GameState advance(Move move) {
-			if(!moves.contains(move)) throw new IllegalArgumentException("Illegal move: " + move);
+			if(!getAvailableMoves().contains(move)) throw new IllegalArgumentException("Illegal move: " + move);
 			// List of pairs of destinations and corresponding tickets
 			List<Pair<Integer, Ticket>> destTickets = move.visit(new Visitor<>() {
 				@Override
@@ -283,18 +243,24 @@ public final class MyGameStateFactory implements Factory<GameState> {
 				}
 			});
 			Player newMrx = mrX;
+			// Only the mover, MrX's tickets, the remaining set and the round change the key
+			long newKey = zobristKey;
 			ArrayList<Player> newDetectives;
-			List<LogEntry> newLogList = new ArrayList<>(log);
+			TravelLog newLog = log;
+			LocationSet newPossible = mrXPossibleLocations;
+			LocationSet newOccupancy = occupancy;
 			if (move.commencedBy() == MrX.MRX) {
 				newMrx = mrX.use(destTickets.get(0).getValue())
 						.at(destTickets.get(0).getKey());
-				updateLog(newLogList, destTickets.get(0).getValue(), destTickets.get(0).getKey());
+				newLog = updateLog(newLog, destTickets.get(0).getValue(), destTickets.get(0).getKey());
+				newPossible = newPossible.follow(setup.compactGraph(), newLog.last(), occupancy);
 
 				if (destTickets.size() > 1) { // Double Move
 					newMrx = newMrx.use(destTickets.get(1).getValue())
 							.at(destTickets.get(1).getKey())
 							.use(Ticket.DOUBLE);
-					updateLog(newLogList, destTickets.get(1).getValue(), destTickets.get(1).getKey());
+					newLog = updateLog(newLog, destTickets.get(1).getValue(), destTickets.get(1).getKey());
+					newPossible = newPossible.follow(setup.compactGraph(), newLog.last(), occupancy);
 				}
 				newDetectives = new ArrayList<>(detectives);
 			}
@@ -308,24 +274,29 @@ public final class MyGameStateFactory implements Factory<GameState> {
 						Player changedDetective = oldDetective.use(destTickets.get(0).getValue())
 								.at(destTickets.get(0).getKey());
 						newDetectives.add(changedDetective);
+						newKey ^= Zobrist.player(oldDetective) ^ Zobrist.player(changedDetective);
 						newMrx = mrX.give(move.tickets());
+						newPossible = newPossible.without(changedDetective.location());
+						newOccupancy = occupancy.move(oldDetective.location(), changedDetective.location());
 					}
 				}
 			}
-			ImmutableList<LogEntry> newLog = ImmutableList.copyOf(newLogList);
 			ImmutableSet<Piece> newRemaining = ImmutableSet.copyOf(updateRemaining(move));
-			GameState newGameState = new MyGameState(setup, newRemaining, newLog, newMrx, newDetectives);
+			newKey ^= Zobrist.player(mrX) ^ Zobrist.player(newMrx)
+					^ Zobrist.remaining(remaining) ^ Zobrist.remaining(newRemaining)
+					^ Zobrist.round(round) ^ Zobrist.round(newLog.size());
+			GameState newGameState = new MyGameState(setup, newRemaining, newLog, newMrx, newDetectives, newKey,
+					newPossible, newOccupancy);
 
 			return newGameState;
 		}
 
-		// Updates MrX's log given the move details
-		private void updateLog(List<LogEntry> newLogList, Ticket ticket, int destination) {
-			round++;
-			if (setup.rounds.get(round-1) == true) {
-				newLogList.add(LogEntry.reveal(ticket, destination));
+		// Adds the move details to MrX's log; the log size is the round the entry is made in
+		private TravelLog updateLog(TravelLog newLog, Ticket ticket, int destination) {
+			if (setup.rounds.get(newLog.size()) == true) {
+				return newLog.append(LogEntry.reveal(ticket, destination));
 			}
-			else newLogList.add(LogEntry.hidden(ticket));
+			else return newLog.append(LogEntry.hidden(ticket));
 		}
 
 		// Checks if the detective has any tickets
@@ -380,7 +351,7 @@ public final class MyGameStateFactory implements Factory<GameState> {
 			Optional<TicketBoard> optionalTicketBoard;
 			for (Player temp : everyone){
 				if (temp.piece() == piece){
-					TicketBoard ticketBoard = new MyTicketBoard(temp.tickets());
+					TicketBoard ticketBoard = new MyTicketBoard(temp);
 					 optionalTicketBoard = Optional.of(ticketBoard);
 					return optionalTicketBoard;
 				}
@@ -391,7 +362,7 @@ public final class MyGameStateFactory implements Factory<GameState> {
 
 		@Override @Nonnull
 		public ImmutableList<LogEntry> getMrXTravelLog() {
-			return log;
+			return log.asList();
 		}
 
 		@Override @Nonnull
@@ -399,23 +370,39 @@ public final class MyGameStateFactory implements Factory<GameState> {
 			return winner;
 		}
 
+		@Override
+		public long zobristKey() {
+			return zobristKey;
+		}
+
+		@Override @Nonnull
+		public LocationSet getMrXPossibleLocations() {
+			return mrXPossibleLocations;
+		}
+
+		@Override @Nonnull
+		public LocationSet getDetectiveOccupancy() {
+			return occupancy;
+		}
+
 		@Override @Nonnull
 		public ImmutableSet<Move> getAvailableMoves() {
 			if (!winner.isEmpty()) return ImmutableSet.of();
-			return this.moves;
+			if (moves == null) moves = makeMoves();
+			return moves;
 		}
 
         //Contains the type and number of tickets a player has
 		private class MyTicketBoard implements TicketBoard{
-			private final ImmutableMap<Ticket, Integer> tickets;
+			private final Player player;
 
-			MyTicketBoard(ImmutableMap<Ticket, Integer> tickets){
-				this.tickets = tickets;
+			MyTicketBoard(Player player){
+				this.player = player;
 			}
 
 			@Override
 			public int getCount(@Nonnull Ticket ticket){
-				return tickets.get(ticket);
+				return player.count(ticket);
 			}
 		}
 	}
@@ -424,7 +411,12 @@ public final class MyGameStateFactory implements Factory<GameState> {
 			GameSetup setup,
 			Player mrX,
 			ImmutableList<Player> detectives) {
-		return new MyGameState(setup, ImmutableSet.of(MrX.MRX), ImmutableList.of(), mrX, detectives);
+		ImmutableSet<Piece> remaining = ImmutableSet.of(MrX.MRX);
+		LocationSet occupancy = LocationSet.of(
+				detectives.stream().map(Player::location).collect(ImmutableList.toImmutableList()));
+		return new MyGameState(setup, remaining, TravelLog.EMPTY, mrX, detectives,
+				Zobrist.of(mrX, detectives, remaining, 0),
+				LocationSet.start(setup, occupancy), occupancy);
 	}
 
 }
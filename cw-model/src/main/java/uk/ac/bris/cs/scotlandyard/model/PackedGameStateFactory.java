@@ -0,0 +1,371 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * A {@link GameState} factory for simulation-heavy code such as AI search.
+ * <br>
+ * States keep every player's location in one packed long, ticket counts in one long per
+ * {@link Ticket} (a lane per player) and the players still to move as a bitmask; the round is the
+ * size of MrX's {@link TravelLog}. {@link GameState#advance(Move)} checks the move directly instead of generating all
+ * available moves, and only allocates the new state, its ticket words, the {@link LocationSet}s
+ * that changed and, for MrX, one {@link TravelLog} entry per round played.
+ * Available moves are generated on first use from the setup's shared {@link MoveTable}
+ * templates.
+ * <br>
+ * Lanes are 10 bits wide, so locations and ticket counts are limited to 1023.
+ */
+public final class PackedGameStateFactory implements Factory<GameState> {
+
+	// player 0 is MrX, players 1..n are the detectives in the order they were given
+	private static final int MRX = 0;
+	private static final int LANE = 10;
+	private static final int LANE_MASK = (1 << LANE) - 1;
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final Transport[] TRANSPORTS = Transport.values();
+
+	private static final byte NO_WINNER = 0;
+	private static final byte MRX_WINS = 1;
+	private static final byte DETECTIVES_WIN = 2;
+
+	private static final ImmutableSet<Piece> MRX_WINNER = ImmutableSet.of(MrX.MRX);
+
+	/**
+	 * Everything that stays the same for the whole game
+	 */
+	private static final class Game {
+		final GameSetup setup;
+		final CompactGraph graph;
+		final MoveTable moves;
+		final Piece[] pieces;
+		final ImmutableSet<Piece> players;
+		final ImmutableSet<Piece> detectives;
+
+		Game(GameSetup setup, Piece[] pieces) {
+			this.setup = setup;
+			this.graph = setup.compactGraph();
+			this.moves = setup.moveTable();
+			this.pieces = pieces;
+			this.players = ImmutableSet.copyOf(pieces);
+			this.detectives = ImmutableSet.copyOf(players.asList().subList(1, pieces.length));
+		}
+
+		int indexOf(Piece piece) {
+			for (int i = 0; i < pieces.length; i++) if (pieces[i] == piece) return i;
+			return -1;
+		}
+	}
+
+	@Nonnull @Override public GameState build(GameSetup setup,
+	                                          Player mrX,
+	                                          ImmutableList<Player> detectives) {
+		Objects.requireNonNull(setup);
+		Objects.requireNonNull(mrX);
+		Objects.requireNonNull(detectives).forEach(Objects::requireNonNull);
+		if (!mrX.isMrX()) throw new IllegalArgumentException("No MrX!");
+		if (setup.rounds.isEmpty()) throw new IllegalArgumentException("Empty Rounds!");
+		if (setup.graph.nodes().isEmpty()) throw new IllegalArgumentException("Empty Graph!");
+
+		var players = ImmutableList.<Player>builder().add(mrX).addAll(detectives).build();
+		var pieces = new Piece[players.size()];
+		long locations = 0;
+		long[] tickets = new long[TICKETS.length];
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			if (i != MRX) {
+				if (!player.isDetective()) throw new IllegalArgumentException("It is not a detective!");
+				if (player.has(Ticket.SECRET) || player.has(Ticket.DOUBLE))
+					throw new IllegalArgumentException("Detective has illegal ticket!");
+				for (int j = 1; j < i; j++) {
+					if (pieces[j] == player.piece())
+						throw new IllegalArgumentException("More than one detective with same colour!");
+					if (lane(locations, j) == player.location())
+						throw new IllegalArgumentException("More than one detective in the same location!");
+				}
+			}
+			if (player.location() < 0 || player.location() > LANE_MASK)
+				throw new IllegalArgumentException("Location out of range: " + player.location());
+			pieces[i] = player.piece();
+			locations |= (long) player.location() << (i * LANE);
+			for (Ticket ticket : TICKETS)
+				tickets[ticket.ordinal()] |= (long) player.count(ticket) << (i * LANE);
+		}
+		// detectives never gain tickets, so MrX can at most end up with every ticket in the game
+		for (Ticket ticket : TICKETS) {
+			int total = 0;
+			for (int i = 0; i < pieces.length; i++) total += lane(tickets[ticket.ordinal()], i);
+			if (total > LANE_MASK)
+				throw new IllegalArgumentException("Too many " + ticket + " tickets: " + total);
+		}
+		var remaining = ImmutableSet.<Piece>of(MrX.MRX);
+		var occupancy = LocationSet.of(
+				detectives.stream().map(Player::location).collect(ImmutableList.toImmutableList()));
+		return new PackedGameState(new Game(setup, pieces),
+				locations, tickets, 1 << MRX, TravelLog.EMPTY,
+				Zobrist.of(mrX, detectives, remaining, 0),
+				LocationSet.start(setup, occupancy), occupancy);
+	}
+
+	private static int lane(long word, int player) {
+		return (int) (word >>> (player * LANE)) & LANE_MASK;
+	}
+
+	private static final class PackedGameState implements GameState, Zobrist.Keyed {
+		private final Game game;
+		private final long locations;
+		private final long[] tickets;
+		private final int remaining;
+		private final TravelLog log;
+		private final byte winner;
+		private final long key;
+		private final LocationSet mrXPossibleLocations;
+		private final LocationSet occupancy;
+		// Generated on the first call to getAvailableMoves()
+		private ImmutableSet<Move> moves;
+
+		private PackedGameState(Game game,
+		                        long locations,
+		                        long[] tickets,
+		                        int remaining,
+		                        TravelLog log,
+		                        long key,
+		                        LocationSet mrXPossibleLocations,
+		                        LocationSet occupancy) {
+			this.game = game;
+			this.locations = locations;
+			this.tickets = tickets;
+			this.remaining = remaining;
+			this.log = log;
+			this.key = key;
+			this.mrXPossibleLocations = mrXPossibleLocations;
+			this.occupancy = occupancy;
+			this.winner = checkGameOver();
+		}
+
+		private int location(int player) { return lane(locations, player); }
+		private int count(int player, Ticket ticket) {
+			return lane(tickets[ticket.ordinal()], player);
+		}
+		private boolean isRemaining(int player) { return (remaining & (1 << player)) != 0; }
+		private int round() { return log.size(); }
+
+		private boolean occupied(int node) { return occupancy.contains(node); }
+
+		// The detectives that still hold at least one ticket, as a bitmask of players
+		private static int detectivesWithTickets(Game game, long[] tickets) {
+			int players = 0;
+			for (int i = 1; i < game.pieces.length; i++) {
+				for (long word : tickets) {
+					if (lane(word, i) != 0) {
+						players |= 1 << i;
+						break;
+					}
+				}
+			}
+			return players;
+		}
+
+		private byte checkGameOver() {
+			int mrX = location(MRX);
+			if (occupied(mrX)) return DETECTIVES_WIN;
+			if (detectivesWithTickets(game, tickets) == 0) return MRX_WINS;
+			if (!isRemaining(MRX)) return NO_WINNER;
+			if (round() == game.setup.rounds.size()) return MRX_WINS;
+			return hasAnySingleMove(MRX) ? NO_WINNER : DETECTIVES_WIN;
+		}
+
+		private boolean hasAnySingleMove(int player) {
+			final CompactGraph graph = game.graph;
+			final int source = location(player);
+			final boolean secret = count(player, Ticket.SECRET) > 0;
+			for (int e = graph.firstEdge(source), end = graph.endEdge(source); e < end; e++) {
+				if (occupied(graph.target(e))) continue;
+				if (secret) return true;
+				int transports = graph.transports(e);
+				for (Transport t : TRANSPORTS)
+					if ((transports & CompactGraph.mask(t)) != 0 && count(player, t.requiredTicket()) > 0)
+						return true;
+			}
+			return false;
+		}
+
+		// Whether the player can travel from source to destination with the given ticket
+		private boolean canTravel(int player, int source, Ticket ticket, int destination) {
+			if (occupied(destination)) return false;
+			int transports = game.graph.transportsBetween(source, destination);
+			return transports != 0 && CompactGraph.accepts(transports, ticket)
+					&& count(player, ticket) > 0;
+		}
+
+		private boolean isLegal(Move move) {
+			if (winner != NO_WINNER) return false;
+			int player = game.indexOf(move.commencedBy());
+			if (player < 0 || !isRemaining(player) || move.source() != location(player)) return false;
+			return move.visit(new Move.Visitor<Boolean>() {
+				@Override public Boolean visit(SingleMove m) {
+					return canTravel(player, m.source(), m.ticket, m.destination);
+				}
+				@Override public Boolean visit(DoubleMove m) {
+					return player == MRX
+							&& game.setup.rounds.size() - round() >= 2
+							&& count(MRX, Ticket.DOUBLE) > 0
+							&& canTravel(MRX, m.source(), m.ticket1, m.destination1)
+							&& canTravel(MRX, m.destination1, m.ticket2, m.destination2)
+							&& (m.ticket1 != m.ticket2 || count(MRX, m.ticket1) >= 2);
+				}
+			});
+		}
+
+		@Nonnull @Override public GameState advance(Move move) {
+			if (!isLegal(move)) throw new IllegalArgumentException("Illegal move: " + move);
+			final int player = game.indexOf(move.commencedBy());
+			final long[] newTickets = tickets.clone();
+			final long newLocations;
+			final TravelLog newLog;
+			final int newRemaining;
+			LocationSet newPossible = mrXPossibleLocations;
+			LocationSet newOccupancy = occupancy;
+			final Piece piece = game.pieces[player];
+			long newKey = key;
+			if (player == MRX) {
+				final int destination;
+				if (move instanceof SingleMove) {
+					SingleMove m = (SingleMove) move;
+					newLog = log.append(entry(log.size(), m.ticket, m.destination));
+					newPossible = newPossible.follow(game.graph, newLog.last(), occupancy);
+					destination = m.destination;
+				} else {
+					DoubleMove m = (DoubleMove) move;
+					TravelLog first = log.append(entry(log.size(), m.ticket1, m.destination1));
+					newPossible = newPossible.follow(game.graph, first.last(), occupancy);
+					newLog = first.append(entry(first.size(), m.ticket2, m.destination2));
+					newPossible = newPossible.follow(game.graph, newLog.last(), occupancy);
+					destination = m.destination2;
+				}
+				for (Ticket ticket : move.tickets()) {
+					int count = lane(newTickets[ticket.ordinal()], MRX);
+					newKey ^= Zobrist.tickets(piece, ticket, count) ^ Zobrist.tickets(piece, ticket, count - 1);
+					newTickets[ticket.ordinal()] -= 1;
+				}
+				newKey ^= Zobrist.location(piece, location(MRX)) ^ Zobrist.location(piece, destination);
+				newLocations = (locations & ~(long) LANE_MASK) | destination;
+				newKey ^= Zobrist.round(log.size()) ^ Zobrist.round(newLog.size());
+				newRemaining = detectivesWithTickets(game, newTickets);
+			} else {
+				SingleMove single = (SingleMove) move;
+				int shift = player * LANE;
+				// the detective's ticket goes to MrX
+				int count = count(player, single.ticket);
+				int mrXCount = count(MRX, single.ticket);
+				newKey ^= Zobrist.tickets(piece, single.ticket, count)
+						^ Zobrist.tickets(piece, single.ticket, count - 1)
+						^ Zobrist.tickets(MrX.MRX, single.ticket, mrXCount)
+						^ Zobrist.tickets(MrX.MRX, single.ticket, mrXCount + 1)
+						^ Zobrist.location(piece, location(player))
+						^ Zobrist.location(piece, single.destination);
+				newTickets[single.ticket.ordinal()] += 1 - (1L << shift);
+				newLocations = (locations & ~((long) LANE_MASK << shift))
+						| (long) single.destination << shift;
+				newLog = log;
+				newPossible = newPossible.without(single.destination);
+				newOccupancy = occupancy.move(location(player), single.destination);
+				int others = remaining & ~(1 << player) & detectivesWithTickets(game, newTickets);
+				newRemaining = Integer.bitCount(remaining) > 1 ? others : 1 << MRX;
+			}
+			for (int changed = remaining ^ newRemaining; changed != 0; changed &= changed - 1)
+				newKey ^= Zobrist.remaining(game.pieces[Integer.numberOfTrailingZeros(changed)]);
+			return new PackedGameState(game, newLocations, newTickets, newRemaining, newLog, newKey,
+					newPossible, newOccupancy);
+		}
+
+		private LogEntry entry(int round, Ticket ticket, int destination) {
+			return game.setup.rounds.get(round)
+					? LogEntry.reveal(ticket, destination)
+					: LogEntry.hidden(ticket);
+		}
+
+		private ImmutableSet<Move> makeMoves() {
+			final var moves = ImmutableSet.<Move>builder();
+			for (int player = 0; player < game.pieces.length; player++) {
+				if (isRemaining(player)) makeSingleMoves(player, moves);
+			}
+			if (isRemaining(MRX)
+					&& game.setup.rounds.size() - round() >= 2
+					&& count(MRX, Ticket.DOUBLE) > 0) makeDoubleMoves(moves);
+			return moves.build();
+		}
+
+		// The tickets the player holds at least the given number of, a bit per ticket
+		private int ticketMask(int player, int atLeast) {
+			int mask = 0;
+			for (Ticket ticket : TICKETS) if (count(player, ticket) >= atLeast) mask |= 1 << ticket.ordinal();
+			return mask;
+		}
+
+		private void makeSingleMoves(int player, ImmutableSet.Builder<Move> moves) {
+			addUnoccupied(game.moves.singleTemplate(game.pieces[player], location(player), ticketMask(player, 1)), moves);
+		}
+
+		private void makeDoubleMoves(ImmutableSet.Builder<Move> moves) {
+			addUnoccupied(game.moves.doubleTemplate(location(MRX), ticketMask(MRX, 1), ticketMask(MRX, 2)), moves);
+		}
+
+		private void addUnoccupied(MoveTable.Template template, ImmutableSet.Builder<Move> moves) {
+			for (int i = 0; i < template.moves.length; i++)
+				if (!occupied(template.middles[i]) && !occupied(template.destinations[i])) moves.add(template.moves[i]);
+		}
+
+		@Nonnull @Override public GameSetup getSetup() { return game.setup; }
+
+		@Nonnull @Override public ImmutableSet<Piece> getPlayers() { return game.players; }
+
+		@Nonnull @Override public Optional<Integer> getDetectiveLocation(Detective detective) {
+			int player = game.indexOf(detective);
+			return player > MRX ? Optional.of(location(player)) : Optional.empty();
+		}
+
+		@Nonnull @Override public Optional<TicketBoard> getPlayerTickets(Piece piece) {
+			int player = game.indexOf(piece);
+			if (player < 0) return Optional.empty();
+			return Optional.of(ticket -> count(player, ticket));
+		}
+
+		@Nonnull @Override public ImmutableList<LogEntry> getMrXTravelLog() { return log.asList(); }
+
+		@Nonnull @Override public ImmutableSet<Piece> getWinner() {
+			switch (winner) {
+				case MRX_WINS: return MRX_WINNER;
+				case DETECTIVES_WIN: return game.detectives;
+				default: return ImmutableSet.of();
+			}
+		}
+
+		@Override public long zobristKey() { return key; }
+
+		@Nonnull @Override public LocationSet getMrXPossibleLocations() { return mrXPossibleLocations; }
+
+		@Nonnull @Override public LocationSet getDetectiveOccupancy() { return occupancy; }
+
+		@Nonnull @Override public ImmutableSet<Move> getAvailableMoves() {
+			if (winner != NO_WINNER) return ImmutableSet.of();
+			if (moves == null) moves = makeMoves();
+			return moves;
+		}
+	}
+
+}
@@ -2,7 +2,6 @@ package uk.ac.bris.cs.scotlandyard.model;
 
 import com.google.common.collect.ImmutableMap;
 
-import java.util.HashMap;
 import java.util.Objects;
 
 import javax.annotation.Nonnull;
@@ -12,18 +11,62 @@ import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
 /**
  * A POJO representing an immutable player of the ScotlandYard game.
  * Each player contains the {@link Piece} (coloured counter), {@link Ticket}s, and the location.
+ * <br>
+ * Ticket counts are kept packed in a long, {@value #BITS} bits per {@link Ticket#ordinal()}, so
+ * {@link #use(Ticket)}, {@link #give(Ticket)}, {@link #has(Ticket)} and {@link #count(Ticket)} don't
+ * touch a map. The {@link #tickets()} map is the one given to the constructor, or built on first
+ * use for players made by {@link #use(Ticket)} and {@link #give(Ticket)}.
  */
 public final class Player {
+	private static final int BITS = 12;
+	private static final int MAX_COUNT = (1 << BITS) - 1;
+	private static final Ticket[] TICKETS = Ticket.values();
+
 	private final Piece piece;
-	private final ImmutableMap<Ticket, Integer> tickets;
+	// BITS bits per ticket ordinal
+	private final long counts;
+	// the tickets in the tickets() map, a bit per ticket ordinal; give() only adds to those
+	private final int present;
 	private final int location;
+	// built on first use when not given
+	private ImmutableMap<Ticket, Integer> tickets;
 
+	/**
+	 * @param piece the piece
+	 * @param tickets the number of each ticket the player holds; counts must be in [0, 4095]
+	 * @param location the location
+	 */
 	public Player(@Nonnull Piece piece,
 	              @Nonnull ImmutableMap<Ticket, Integer> tickets,
 	              int location) {
 		this.piece = Objects.requireNonNull(piece);
 		this.tickets = Objects.requireNonNull(tickets);
 		this.location = location;
+		long counts = 0;
+		int present = 0;
+		for (var entry : tickets.entrySet()) {
+			int count = entry.getValue();
+			if (count < 0 || count > MAX_COUNT)
+				throw new IllegalArgumentException("Ticket count out of range: " + entry);
+			counts |= (long) count << shift(entry.getKey());
+			present |= 1 << entry.getKey().ordinal();
+		}
+		this.counts = counts;
+		this.present = present;
+	}
+
+	private Player(Piece piece, long counts, int present, int location, ImmutableMap<Ticket, Integer> tickets) {
+		this.piece = piece;
+		this.counts = counts;
+		this.present = present;
+		this.location = location;
+		this.tickets = tickets;
+	}
+
+	private static int shift(Ticket ticket) { return ticket.ordinal() * BITS; }
+
+	private static int count(long counts, Ticket ticket) {
+		return (int) (counts >>> shift(ticket)) & MAX_COUNT;
 	}
 	/**
 	 * @return the piece
@@ -40,26 +83,36 @@ public final class Player {
 	/**
 	 * @return the ticket
 	 */
-	@Nonnull public ImmutableMap<Ticket, Integer> tickets() { return tickets; }
+	@Nonnull public ImmutableMap<Ticket, Integer> tickets() {
+		var map = tickets;
+		if (map == null) {
+			var builder = ImmutableMap.<Ticket, Integer>builderWithExpectedSize(TICKETS.length);
+			for (Ticket ticket : TICKETS)
+				if ((present & 1 << ticket.ordinal()) != 0) builder.put(ticket, count(ticket));
+			tickets = map = builder.build();
+		}
+		return map;
+	}
 	/**
 	 * @return the location
 	 */
 	public int location() { return location; }
+	/**
+	 * @param ticket the ticket
+	 * @return the number of the given ticket the player has
+	 */
+	public int count(@Nonnull Ticket ticket) { return count(counts, Objects.requireNonNull(ticket)); }
 	/**
 	 * @param ticket the ticket
 	 * @return whether the player has the given ticket
 	 */
-	public boolean has(@Nonnull Ticket ticket) {
-		return tickets.getOrDefault(Objects.requireNonNull(ticket), 0) != 0;
-	}
+	public boolean has(@Nonnull Ticket ticket) { return count(ticket) != 0; }
 	/**
 	 * @param ticket the ticket
 	 * @param count the required count
 	 * @return whether the player has &gt;= the required numbers of the given ticket
 	 */
-	public boolean hasAtLeast(@Nonnull Ticket ticket, int count) {
-		return tickets.getOrDefault(Objects.requireNonNull(ticket), 0) >= count;
-	}
+	public boolean hasAtLeast(@Nonnull Ticket ticket, int count) { return count(ticket) >= count; }
 	/**
 	 * See {@link #give(Ticket)}
 	 *
@@ -67,18 +120,22 @@ public final class Player {
 	 * @return a new player with one more of the given tickets
 	 */
 	@Nonnull public Player give(@Nonnull Iterable<Ticket> tickets) {
-		var x = this;
-		for (Ticket t : tickets) x = x.give(t);
-		return x;
+		long counts = this.counts;
+		for (Ticket t : tickets) counts = give(counts, t);
+		return new Player(piece, counts, present, location, null);
 	}
 	/**
 	 * @param ticket the ticket
 	 * @return a new player with one more of the given ticket
 	 */
 	@Nonnull public Player give(@Nonnull Ticket ticket) {
-		var map = new HashMap<>(tickets);
-		map.computeIfPresent(ticket, (t, n) -> n + 1);
-		return new Player(piece, ImmutableMap.copyOf(map), location);
+		return new Player(piece, give(counts, ticket), present, location, null);
+	}
+	// Only tickets in the map are counted, as before counts were packed
+	private long give(long counts, Ticket ticket) {
+		if ((present & 1 << ticket.ordinal()) == 0) return counts;
+		if (count(counts, ticket) == MAX_COUNT) throw new IllegalArgumentException("Too many " + ticket);
+		return counts + (1L << shift(ticket));
 	}
 	/**
 	 * See {@link #use(Ticket)}
@@ -87,33 +144,42 @@ public final class Player {
 	 * @return a new player with one less of the given tickets
 	 */
 	@Nonnull public Player use(@Nonnull Iterable<Ticket> tickets) {
-		var x = this;
-		for (Ticket t : tickets) x = x.use(t);
-		return x;
+		long counts = this.counts;
+		for (Ticket t : tickets) counts = use(counts, t);
+		return new Player(piece, counts, present, location, null);
 	}
 	/**
 	 * @param ticket the ticket
 	 * @return a new player with one less of the given ticket
 	 */
 	@Nonnull public Player use(@Nonnull Ticket ticket) {
-		if (!has(ticket))
+		return new Player(piece, use(counts, ticket), present, location, null);
+	}
+	private static long use(long counts, Ticket ticket) {
+		if (count(counts, Objects.requireNonNull(ticket)) == 0)
 			throw new IllegalArgumentException("No " + ticket + " remaining");
-		var map = new HashMap<>(tickets);
-		map.computeIfPresent(ticket, (t, n) -> n - 1);
-		return new Player(piece, ImmutableMap.copyOf(map), location);
+		return counts - (1L << shift(ticket));
 	}
 	/**
 	 * @param newLocation the location
 	 * @return a new player at the given location
 	 */
-	@Nonnull public Player at(int newLocation) { return new Player(piece, tickets, newLocation); }
+	@Nonnull public Player at(int newLocation) {
+		return new Player(piece, counts, present, newLocation, tickets);
+	}
 	@Override public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		Player that = (Player) o;
 		return location == that.location && piece == that.piece &&
-				Objects.equals(tickets, that.tickets);
+				counts == that.counts && present == that.present;
+	}
+	// Objects.hash(piece, tickets(), location) without building the map
+	@Override public int hashCode() {
+		int tickets = 0;
+		for (Ticket ticket : TICKETS)
+			if ((present & 1 << ticket.ordinal()) != 0) tickets += ticket.hashCode() ^ count(ticket);
+		return 31 * (31 * (31 + piece.hashCode()) + tickets) + location;
 	}
-	@Override public int hashCode() { return Objects.hash(piece, tickets, location); }
-	@Override public String toString() { return piece + "@" + location + "(" + tickets + ")"; }
+	@Override public String toString() { return piece + "@" + location + "(" + tickets() + ")"; }
 }
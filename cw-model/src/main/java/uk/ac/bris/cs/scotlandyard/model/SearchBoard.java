@@ -0,0 +1,431 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.Piece.MrX;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * A mutable ScotlandYard board for search engines.
+ * <br>
+ * {@link #makeMove(Move)} updates locations, tickets, MrX's log and the players still to move
+ * in place and {@link #unmakeMove()} reverts the last move, so a search can walk the game tree
+ * with the same rules as {@link GameState#advance(Move)} without creating a state per node.
+ * Legal moves are written into a caller supplied buffer with {@link #generateMoves(List)}; they
+ * come from the setup's shared {@link MoveTable} templates, so generating them does not allocate.
+ * <br>
+ * Instances are not thread safe.
+ */
+public final class SearchBoard {
+
+	// player 0 is MrX, players 1..n are the detectives
+	private static final int MRX = 0;
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	private final GameSetup setup;
+	private final CompactGraph graph;
+	private final MoveTable table;
+	private final Piece[] pieces;
+	private final int[] locations;
+	private final int[][] tickets;
+	// a bit per node detectives are on, laid out like LocationSet's words but changed in place
+	private final long[] occupancy;
+	private final LogEntry[] log;
+	private int round;
+	private int remaining;
+	private long key;
+
+	private Move[] moveStack = new Move[16];
+	private int[] remainingStack = new int[16];
+	private long[] keyStack = new long[16];
+	private int ply;
+
+	/**
+	 * Creates a board at the start of a game, see
+	 * {@link ScotlandYard.Factory#build(GameSetup, Player, ImmutableList)}
+	 *
+	 * @param setup the game setup
+	 * @param mrX MrX player
+	 * @param detectives detective players
+	 */
+	public SearchBoard(@Nonnull GameSetup setup,
+	                   @Nonnull Player mrX,
+	                   @Nonnull ImmutableList<Player> detectives) {
+		this(setup, ImmutableList.<Player>builder().add(mrX).addAll(detectives).build(),
+				ImmutableList.of(), 1 << MRX);
+	}
+
+	private SearchBoard(GameSetup setup,
+	                    ImmutableList<Player> players,
+	                    ImmutableList<LogEntry> log,
+	                    int remaining) {
+		if (setup.rounds.isEmpty()) throw new IllegalArgumentException("Empty Rounds!");
+		if (setup.graph.nodes().isEmpty()) throw new IllegalArgumentException("Empty Graph!");
+		checkPlayers(players);
+		if (log.size() > setup.rounds.size())
+			throw new IllegalArgumentException("Log is longer than the rounds");
+		this.setup = setup;
+		this.graph = setup.compactGraph();
+		this.table = setup.moveTable();
+		this.pieces = new Piece[players.size()];
+		this.locations = new int[players.size()];
+		this.tickets = new int[players.size()][TICKETS.length];
+		for (int i = 0; i < players.size(); i++) {
+			Player player = Objects.requireNonNull(players.get(i));
+			pieces[i] = player.piece();
+			locations[i] = player.location();
+			for (Ticket ticket : TICKETS)
+				tickets[i][ticket.ordinal()] = player.count(ticket);
+		}
+		int maxNode = graph.maxNode();
+		for (int i = 1; i < locations.length; i++) maxNode = Math.max(maxNode, locations[i]);
+		this.occupancy = new long[(maxNode >>> 6) + 1];
+		for (int i = 1; i < locations.length; i++) occupancy[locations[i] >>> 6] |= 1L << locations[i];
+		this.log = log.toArray(new LogEntry[setup.rounds.size()]);
+		this.round = log.size();
+		this.remaining = remaining;
+		this.key = Zobrist.round(round);
+		for (int i = 0; i < pieces.length; i++) {
+			key ^= Zobrist.location(pieces[i], locations[i]);
+			for (Ticket ticket : TICKETS)
+				key ^= Zobrist.tickets(pieces[i], ticket, tickets[i][ticket.ordinal()]);
+			if (isRemaining(i)) key ^= Zobrist.remaining(pieces[i]);
+		}
+	}
+
+	// The same checks as MyGameStateFactory's; detectives sharing a node would break the occupancy
+	private static void checkPlayers(ImmutableList<Player> players) {
+		if (!Objects.requireNonNull(players.get(MRX)).isMrX()) throw new IllegalArgumentException("No MrX!");
+		for (int i = 1; i < players.size(); i++) {
+			Player detective = Objects.requireNonNull(players.get(i));
+			if (!detective.isDetective()) throw new IllegalArgumentException("It is not a detective!");
+			if (detective.has(Ticket.SECRET) || detective.has(Ticket.DOUBLE))
+				throw new IllegalArgumentException("Detective has illegal ticket!");
+			for (int j = i + 1; j < players.size(); j++) {
+				if (detective.piece() == players.get(j).piece())
+					throw new IllegalArgumentException("More than one detective with same colour!");
+				if (detective.location() == players.get(j).location())
+					throw new IllegalArgumentException("More than one detective in the same location!");
+			}
+		}
+	}
+
+	/**
+	 * Creates a board from a snapshot of an ongoing game. Boards don't reveal MrX's location so it
+	 * has to be supplied; MrX's AI can take it from the source of any of its available moves.
+	 * The players still to move are taken from the available moves, so detectives that are yet
+	 * to move but have no legal move are left out.
+	 *
+	 * @param board the board
+	 * @param mrXLocation MrX's current location
+	 * @return a new search board in the same position as the given board
+	 */
+	@Nonnull public static SearchBoard of(@Nonnull Board board, int mrXLocation) {
+		var players = ImmutableList.<Player>builder();
+		var pieces = new ArrayList<>(board.getPlayers());
+		pieces.sort(ScotlandYard.PIECE_VALUE_ORDER);
+		for (Piece piece : pieces) {
+			Board.TicketBoard ticketBoard = board.getPlayerTickets(piece).orElseThrow();
+			var counts = Arrays.stream(TICKETS).collect(
+					ImmutableMap.toImmutableMap(t -> t, ticketBoard::getCount));
+			int location = piece.isMrX()
+					? mrXLocation
+					: board.getDetectiveLocation((Detective) piece).orElseThrow();
+			players.add(new Player(piece, counts, location));
+		}
+		var built = players.build();
+		if (built.isEmpty() || !built.get(0).isMrX()) throw new IllegalArgumentException("No MrX!");
+		int remaining = 0;
+		for (Move move : board.getAvailableMoves()) {
+			for (int i = 0; i < built.size(); i++)
+				if (built.get(i).piece() == move.commencedBy()) remaining |= 1 << i;
+		}
+		// a finished game has no moves; the winner is worked out as if MrX was next
+		if (remaining == 0) remaining = 1 << MRX;
+		return new SearchBoard(board.getSetup(), built, board.getMrXTravelLog(), remaining);
+	}
+
+	/**
+	 * @return the game setup
+	 */
+	@Nonnull public GameSetup getSetup() { return setup; }
+	/**
+	 * @return the number of moves made with {@link #makeMove(Move)} that can still be unmade
+	 */
+	public int ply() { return ply; }
+	/**
+	 * @return the current round, i.e the number of entries in MrX's travel log
+	 */
+	public int round() { return round; }
+	/**
+	 * @return the Zobrist key of the current position, equal to the key game states of this model
+	 * keep for the same position
+	 */
+	public long zobristKey() { return key; }
+	/**
+	 * @param piece the piece
+	 * @return the location of the given piece; -1 if the piece is not part of the game
+	 */
+	public int location(@Nonnull Piece piece) {
+		int player = indexOf(piece);
+		return player < 0 ? -1 : locations[player];
+	}
+	/**
+	 * @param piece the piece
+	 * @param ticket the ticket
+	 * @return the number of the given ticket the piece holds; 0 if not part of the game
+	 */
+	public int count(@Nonnull Piece piece, @Nonnull Ticket ticket) {
+		int player = indexOf(piece);
+		return player < 0 ? 0 : tickets[player][ticket.ordinal()];
+	}
+	/**
+	 * @param piece the piece
+	 * @return whether the given piece has yet to move in the current round
+	 */
+	public boolean isRemaining(@Nonnull Piece piece) {
+		int player = indexOf(piece);
+		return player >= 0 && isRemaining(player);
+	}
+	/**
+	 * @return MrX's travel log, see {@link Board#getMrXTravelLog()}
+	 */
+	@Nonnull public ImmutableList<LogEntry> getMrXTravelLog() {
+		return ImmutableList.copyOf(Arrays.asList(log).subList(0, round));
+	}
+
+	private int indexOf(Piece piece) {
+		for (int i = 0; i < pieces.length; i++) if (pieces[i] == piece) return i;
+		return -1;
+	}
+
+	private boolean isRemaining(int player) { return (remaining & (1 << player)) != 0; }
+
+	private boolean occupied(int node) {
+		return node >>> 6 < occupancy.length && (occupancy[node >>> 6] & 1L << node) != 0;
+	}
+
+	private void moveDetective(int player, int destination) {
+		occupancy[locations[player] >>> 6] &= ~(1L << locations[player]);
+		locations[player] = destination;
+		occupancy[destination >>> 6] |= 1L << destination;
+	}
+
+	// The detectives that still hold at least one ticket, as a bitmask of players
+	private int detectivesWithTickets() {
+		int players = 0;
+		for (int i = 1; i < pieces.length; i++) {
+			for (int count : tickets[i]) {
+				if (count != 0) {
+					players |= 1 << i;
+					break;
+				}
+			}
+		}
+		return players;
+	}
+
+	private boolean hasAnySingleMove(int player) {
+		final int source = locations[player];
+		for (int e = graph.firstEdge(source), end = graph.endEdge(source); e < end; e++) {
+			if (occupied(graph.target(e))) continue;
+			for (Ticket ticket : TICKETS)
+				if (tickets[player][ticket.ordinal()] > 0 && CompactGraph.accepts(graph.transports(e), ticket))
+					return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether the game is over, see {@link #getWinner()}
+	 */
+	public boolean isGameOver() {
+		if (occupied(locations[MRX])) return true;
+		if (detectivesWithTickets() == 0) return true;
+		if (!isRemaining(MRX)) return false;
+		return round == setup.rounds.size() || !hasAnySingleMove(MRX);
+	}
+
+	/**
+	 * @return the winner of the game, see {@link Board#getWinner()}
+	 */
+	@Nonnull public ImmutableSet<Piece> getWinner() {
+		if (!isGameOver()) return ImmutableSet.of();
+		if (occupied(locations[MRX])) return detectives();
+		if (detectivesWithTickets() == 0 || round == setup.rounds.size())
+			return ImmutableSet.of(MrX.MRX);
+		return detectives();
+	}
+
+	private ImmutableSet<Piece> detectives() {
+		return ImmutableSet.copyOf(Arrays.asList(pieces).subList(1, pieces.length));
+	}
+
+	/**
+	 * Clears the given buffer and fills it with the legal moves of the current position, see
+	 * {@link Board#getAvailableMoves()}
+	 *
+	 * @param buffer the buffer to reuse
+	 * @return the number of moves generated
+	 */
+	public int generateMoves(@Nonnull List<? super Move> buffer) {
+		buffer.clear();
+		if (isGameOver()) return 0;
+		for (int player = 0; player < pieces.length; player++)
+			if (isRemaining(player))
+				addUnoccupied(table.singleTemplate(pieces[player], locations[player], ticketMask(player, 1)), buffer);
+		if (isRemaining(MRX) && setup.rounds.size() - round >= 2
+				&& tickets[MRX][Ticket.DOUBLE.ordinal()] > 0)
+			addUnoccupied(table.doubleTemplate(locations[MRX], ticketMask(MRX, 1), ticketMask(MRX, 2)), buffer);
+		return buffer.size();
+	}
+
+	// The tickets the player holds at least the given number of, a bit per ticket
+	private int ticketMask(int player, int atLeast) {
+		int mask = 0;
+		for (Ticket ticket : TICKETS) if (tickets[player][ticket.ordinal()] >= atLeast) mask |= 1 << ticket.ordinal();
+		return mask;
+	}
+
+	private void addUnoccupied(MoveTable.Template template, List<? super Move> buffer) {
+		for (int i = 0; i < template.moves.length; i++)
+			if (!occupied(template.middles[i]) && !occupied(template.destinations[i])) buffer.add(template.moves[i]);
+	}
+
+	private boolean canTravel(int player, int source, Ticket ticket, int destination) {
+		if (occupied(destination)) return false;
+		int transports = graph.transportsBetween(source, destination);
+		return transports != 0 && CompactGraph.accepts(transports, ticket)
+				&& tickets[player][ticket.ordinal()] > 0;
+	}
+
+	/**
+	 * @param move the move
+	 * @return whether the move is legal in the current position, i.e it would be part of the
+	 * moves from {@link #generateMoves(List)}
+	 */
+	public boolean isLegal(@Nonnull Move move) {
+		final int player = indexOf(move.commencedBy());
+		if (player < 0 || !isRemaining(player) || move.source() != locations[player]) return false;
+		if (isGameOver()) return false;
+		return move.visit(new Move.Visitor<Boolean>() {
+			@Override public Boolean visit(SingleMove m) {
+				return canTravel(player, m.source(), m.ticket, m.destination);
+			}
+			@Override public Boolean visit(DoubleMove m) {
+				return player == MRX
+						&& setup.rounds.size() - round >= 2
+						&& tickets[MRX][Ticket.DOUBLE.ordinal()] > 0
+						&& canTravel(MRX, m.source(), m.ticket1, m.destination1)
+						&& canTravel(MRX, m.destination1, m.ticket2, m.destination2)
+						&& (m.ticket1 != m.ticket2 || tickets[MRX][m.ticket1.ordinal()] >= 2);
+			}
+		});
+	}
+
+	/**
+	 * Makes the given move in place, see {@link GameState#advance(Move)}
+	 *
+	 * @param move the move to make
+	 * @throws IllegalArgumentException if the move is not legal, see {@link #isLegal(Move)}
+	 */
+	public void makeMove(@Nonnull Move move) {
+		if (!isLegal(move)) throw new IllegalArgumentException("Illegal move: " + move);
+		if (ply == moveStack.length) {
+			moveStack = Arrays.copyOf(moveStack, ply * 2);
+			remainingStack = Arrays.copyOf(remainingStack, ply * 2);
+			keyStack = Arrays.copyOf(keyStack, ply * 2);
+		}
+		moveStack[ply] = move;
+		remainingStack[ply] = remaining;
+		keyStack[ply] = key;
+		ply++;
+
+		final int player = indexOf(move.commencedBy());
+		final int previous = remaining;
+		key ^= Zobrist.location(pieces[player], locations[player]);
+		if (player == MRX) {
+			key ^= Zobrist.round(round);
+			locations[MRX] = move.visit(new Move.Visitor<Integer>() {
+				@Override public Integer visit(SingleMove m) {
+					addLogEntry(m.ticket, m.destination);
+					return m.destination;
+				}
+				@Override public Integer visit(DoubleMove m) {
+					addLogEntry(m.ticket1, m.destination1);
+					addLogEntry(m.ticket2, m.destination2);
+					return m.destination2;
+				}
+			});
+			key ^= Zobrist.round(round);
+			for (Ticket ticket : move.tickets()) changeTickets(MRX, ticket, -1);
+			remaining = detectivesWithTickets();
+		} else {
+			SingleMove single = (SingleMove) move;
+			moveDetective(player, single.destination);
+			changeTickets(player, single.ticket, -1);
+			changeTickets(MRX, single.ticket, 1);
+			remaining = Integer.bitCount(remaining) > 1
+					? remaining & ~(1 << player) & detectivesWithTickets()
+					: 1 << MRX;
+		}
+		key ^= Zobrist.location(pieces[player], locations[player]);
+		for (int changed = previous ^ remaining; changed != 0; changed &= changed - 1)
+			key ^= Zobrist.remaining(pieces[Integer.numberOfTrailingZeros(changed)]);
+	}
+
+	private void changeTickets(int player, Ticket ticket, int change) {
+		int count = tickets[player][ticket.ordinal()];
+		key ^= Zobrist.tickets(pieces[player], ticket, count)
+				^ Zobrist.tickets(pieces[player], ticket, count + change);
+		tickets[player][ticket.ordinal()] = count + change;
+	}
+
+	private void addLogEntry(Ticket ticket, int destination) {
+		log[round] = setup.rounds.get(round)
+				? LogEntry.reveal(ticket, destination)
+				: LogEntry.hidden(ticket);
+		round++;
+	}
+
+	/**
+	 * Reverts the last move made with {@link #makeMove(Move)}
+	 *
+	 * @return the move that was reverted
+	 * @throws IllegalStateException if there is no move to revert
+	 */
+	@Nonnull public Move unmakeMove() {
+		if (ply == 0) throw new IllegalStateException("No move to unmake");
+		final Move move = moveStack[--ply];
+		moveStack[ply] = null;
+		remaining = remainingStack[ply];
+		key = keyStack[ply];
+
+		final int player = indexOf(move.commencedBy());
+		if (player == MRX) {
+			locations[MRX] = move.source();
+			for (Ticket ticket : move.tickets()) tickets[MRX][ticket.ordinal()]++;
+			for (int i = move instanceof DoubleMove ? 2 : 1; i > 0; i--) log[--round] = null;
+		} else {
+			moveDetective(player, move.source());
+			Ticket ticket = ((SingleMove) move).ticket;
+			tickets[player][ticket.ordinal()]++;
+			tickets[MRX][ticket.ordinal()]--;
+		}
+		return move;
+	}
+
+}
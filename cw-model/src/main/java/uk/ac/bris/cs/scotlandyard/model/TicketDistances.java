@@ -0,0 +1,107 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.MapMaker;
+import com.google.common.graph.ValueGraph;
+
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.TicketBoard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * Minimum number of moves between nodes of a ScotlandYard game graph for a player holding a given
+ * set of tickets.
+ * <br>
+ * The tickets a player holds are a bitmask (see {@link #mask(Ticket)}); a player can travel every
+ * transport whose required ticket is in the mask, and every transport if the mask has
+ * {@link Ticket#SECRET}. Ticket counts are not considered, so the distances are exact as long as the
+ * player doesn't run out of a ticket on the way. All masks are resolved to a {@link DistanceOracle}
+ * when the table is built, so lookups are O(1).
+ * <br>
+ * Use {@link #of(ValueGraph)} to obtain instances.
+ */
+public final class TicketDistances {
+
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final Transport[] TRANSPORTS = Transport.values();
+
+	private static final ConcurrentMap<ValueGraph<Integer, ImmutableSet<Transport>>, TicketDistances>
+			CACHE = new MapMaker().weakKeys().makeMap();
+
+	private final DistanceOracle[] oracles;
+
+	private TicketDistances(DistanceOracle[] oracles) { this.oracles = oracles; }
+
+	/**
+	 * @param graph the game graph
+	 * @return the ticket aware distances of the given graph; built once per graph instance
+	 */
+	@Nonnull public static TicketDistances of(
+			@Nonnull ValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		return CACHE.computeIfAbsent(graph, g -> {
+			var oracles = new DistanceOracle[1 << TICKETS.length];
+			for (int mask = 0; mask < oracles.length; mask++)
+				oracles[mask] = DistanceOracle.of(graph, transports(mask));
+			return new TicketDistances(oracles);
+		});
+	}
+
+	// The transports a player holding the given tickets can travel, see CompactGraph#mask(Transport)
+	private static int transports(int tickets) {
+		int transports = 0;
+		for (Transport t : TRANSPORTS) {
+			if ((tickets & (mask(t.requiredTicket()) | mask(Ticket.SECRET))) != 0)
+				transports |= CompactGraph.mask(t);
+		}
+		return transports;
+	}
+
+	/**
+	 * @param ticket the ticket
+	 * @return the bit representing the given ticket in a ticket mask
+	 */
+	public static int mask(@Nonnull Ticket ticket) { return 1 << ticket.ordinal(); }
+
+	/**
+	 * @param tickets the tickets of a player
+	 * @return the mask of tickets the player holds at least one of
+	 */
+	public static int mask(@Nonnull TicketBoard tickets) {
+		int mask = 0;
+		for (Ticket ticket : TICKETS) if (tickets.getCount(ticket) > 0) mask |= mask(ticket);
+		return mask;
+	}
+
+	/**
+	 * @param player the player
+	 * @return the mask of tickets the player holds at least one of
+	 */
+	public static int mask(@Nonnull Player player) {
+		int mask = 0;
+		for (Ticket ticket : TICKETS) if (player.has(ticket)) mask |= mask(ticket);
+		return mask;
+	}
+
+	/**
+	 * @param tickets a ticket mask
+	 * @return the distance oracle for a player holding the given tickets
+	 */
+	@Nonnull public DistanceOracle oracle(int tickets) {
+		return oracles[tickets & (oracles.length - 1)];
+	}
+
+	/**
+	 * @param source the source node
+	 * @param destination the destination node
+	 * @param tickets a ticket mask
+	 * @return the fewest moves between the two nodes for a player holding the given tickets;
+	 * {@link DistanceOracle#UNREACHABLE} if there is no such path
+	 */
+	public int distance(int source, int destination, int tickets) {
+		return oracle(tickets).distance(source, destination);
+	}
+}
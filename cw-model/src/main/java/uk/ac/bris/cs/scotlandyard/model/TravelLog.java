@@ -0,0 +1,70 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * MrX's travel log as a persistent list, so a game state's log shares all earlier entries with
+ * the log of the state it was advanced from.
+ * <br>
+ * {@link #append(LogEntry)} is O(1) and does not copy. The {@link ImmutableList} the
+ * {@link Board} interface needs is built on first use by {@link #asList()}, from the closest
+ * earlier log that has already built one.
+ */
+final class TravelLog {
+
+	static final TravelLog EMPTY = new TravelLog(null, null, 0, ImmutableList.of());
+
+	private final LogEntry last;
+	private final TravelLog previous;
+	private final int size;
+	// built on first use
+	private volatile ImmutableList<LogEntry> list;
+
+	private TravelLog(LogEntry last, TravelLog previous, int size, ImmutableList<LogEntry> list) {
+		this.last = last;
+		this.previous = previous;
+		this.size = size;
+		this.list = list;
+	}
+
+	/**
+	 * @param entry the entry
+	 * @return this log with the given entry added at the end
+	 */
+	@Nonnull TravelLog append(@Nonnull LogEntry entry) {
+		return new TravelLog(entry, this, size + 1, null);
+	}
+
+	/**
+	 * @return the number of entries, which is the number of rounds MrX has played
+	 */
+	int size() { return size; }
+
+	/**
+	 * @return the last entry
+	 * @throws NoSuchElementException if the log is empty
+	 */
+	@Nonnull LogEntry last() {
+		if (last == null) throw new NoSuchElementException("Empty travel log");
+		return last;
+	}
+
+	/**
+	 * @return the entries as a list
+	 */
+	@Nonnull ImmutableList<LogEntry> asList() {
+		ImmutableList<LogEntry> list = this.list;
+		if (list != null) return list;
+		LogEntry[] entries = new LogEntry[size];
+		TravelLog log = this;
+		for (; log.list == null; log = log.previous) entries[log.size - 1] = log.last;
+		ImmutableList<LogEntry> built = log.list;
+		for (int i = built.size() - 1; i >= 0; i--) entries[i] = built.get(i);
+		this.list = list = ImmutableList.copyOf(entries);
+		return list;
+	}
+}
@@ -0,0 +1,135 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * 64-bit Zobrist keys for ScotlandYard positions.
+ * <br>
+ * The key of a position is the XOR of one component per piece location, per piece and ticket
+ * count, per piece still to move and one for the round. Making a move only changes a few
+ * components, so keys are updated incrementally by XOR-ing out the old components and XOR-ing in
+ * the new ones. Components are derived with a 64-bit mixing function rather than random tables so
+ * they don't depend on the size of the graph and are the same in every run.
+ */
+public final class Zobrist {
+
+	private static final long LOCATION = 1L << 60;
+	private static final long TICKETS = 2L << 60;
+	private static final long REMAINING = 3L << 60;
+	private static final long ROUND = 4L << 60;
+	private static final Ticket[] TICKET_VALUES = Ticket.values();
+
+	private Zobrist() {}
+
+	/**
+	 * A game state of this package keeping its key up to date. Keys cover MrX's location, so they
+	 * are kept off {@link GameState}, where detective Ais could compare keys to find him.
+	 */
+	interface Keyed {
+		/**
+		 * @return the key of the state's position
+		 */
+		long zobristKey();
+	}
+
+	/**
+	 * @param state a game state made by {@link MyGameStateFactory} or {@link PackedGameStateFactory}
+	 * @return the key of the state's position
+	 * @throws IllegalArgumentException if the state keeps no key
+	 */
+	static long key(@Nonnull GameState state) {
+		if (!(state instanceof Keyed)) throw new IllegalArgumentException("State keeps no key: " + state);
+		return ((Keyed) state).zobristKey();
+	}
+
+	private static long index(Piece piece) {
+		return piece.isMrX() ? 0 : 1 + ((Detective) piece).ordinal();
+	}
+
+	// SplitMix64's finaliser; it is a bijection so distinct components never share a key
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @param piece the piece
+	 * @param location the location of the piece
+	 * @return the component for the piece standing on the given location
+	 */
+	public static long location(@Nonnull Piece piece, int location) {
+		return mix(LOCATION | index(piece) << 40 | (location & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * @param piece the piece
+	 * @param ticket the ticket
+	 * @param count the number of the given ticket the piece holds
+	 * @return the component for the piece's count of the given ticket
+	 */
+	public static long tickets(@Nonnull Piece piece, @Nonnull Ticket ticket, int count) {
+		return mix(TICKETS | index(piece) << 40 | (long) ticket.ordinal() << 32
+				| (count & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * @param piece the piece
+	 * @return the component for the piece being yet to move this round
+	 */
+	public static long remaining(@Nonnull Piece piece) {
+		return mix(REMAINING | index(piece) << 40);
+	}
+
+	/**
+	 * @param round the round, i.e the size of MrX's travel log
+	 * @return the component for the round
+	 */
+	public static long round(int round) {
+		return mix(ROUND | (round & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * @param player the player
+	 * @return the XOR of the location and ticket components of the given player
+	 */
+	public static long player(@Nonnull Player player) {
+		long key = location(player.piece(), player.location());
+		for (Ticket ticket : TICKET_VALUES)
+			key ^= tickets(player.piece(), ticket, player.count(ticket));
+		return key;
+	}
+
+	/**
+	 * @param remaining the pieces yet to move
+	 * @return the XOR of the remaining components of the given pieces
+	 */
+	public static long remaining(@Nonnull Set<Piece> remaining) {
+		long key = 0;
+		for (Piece piece : remaining) key ^= remaining(piece);
+		return key;
+	}
+
+	/**
+	 * @param mrX MrX
+	 * @param detectives the detectives
+	 * @param remaining the pieces yet to move
+	 * @param round the round, i.e the size of MrX's travel log
+	 * @return the key of the position, computed from scratch
+	 */
+	public static long of(@Nonnull Player mrX,
+	                      @Nonnull List<Player> detectives,
+	                      @Nonnull Set<Piece> remaining,
+	                      int round) {
+		long key = player(mrX) ^ remaining(remaining) ^ round(round);
+		for (Player detective : detectives) key ^= player(detective);
+		return key;
+	}
+}
@@ -4,7 +4,11 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.io.Resources;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.ResourceBundle;
@@ -20,6 +24,9 @@ import javafx.stage.Stage;
 import uk.ac.bris.cs.scotlandyard.ResourceManager;
 import uk.ac.bris.cs.scotlandyard.ResourceManager.ImageResource;
 import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameArchive;
+import uk.ac.bris.cs.scotlandyard.model.GameRecord;
+import uk.ac.bris.cs.scotlandyard.model.GameRecorder;
 import uk.ac.bris.cs.scotlandyard.model.GameSetup;
 import uk.ac.bris.cs.scotlandyard.model.Model;
 import uk.ac.bris.cs.scotlandyard.model.Model.Observer;
@@ -41,6 +48,12 @@ import static uk.ac.bris.cs.scotlandyard.ui.Utils.handleFatalException;
 
 public final class LocalGameController extends BaseGameController {
 
+	/**
+	 * The system property naming a {@link GameArchive} file; when set, every game that ends with a
+	 * winner is added to it
+	 */
+	public static final String ARCHIVE_PROPERTY = "scotlandyard.archive";
+
 	public static LocalGameController newGame(ResourceManager manager, Stage stage) {
 		var controller = new LocalGameController(manager, stage);
 		stage.setTitle("ScotlandYardNG");
@@ -180,10 +193,24 @@ public final class LocalGameController extends BaseGameController {
 	}
 
 
+	// Adds a finished game to the archive named by ARCHIVE_PROPERTY
+	private static void archive(String file, ByteArrayOutputStream recording) {
+		try (GameArchive.Writer writer = GameArchive.append(Paths.get(file))) {
+			var in = new ByteArrayInputStream(recording.toByteArray());
+			for (var game = GameRecord.read(in); game.isPresent(); game = GameRecord.read(in))
+				writer.add(game.get());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 	private void createGame(ModelProperty setup) {
 		hideOverlay();
 		try {
-			var modelFactory = (new MyModelFactory());
+			String archive = System.getProperty(ARCHIVE_PROPERTY);
+			var recording = new ByteArrayOutputStream();
+			Factory<Model> modelFactory = new MyModelFactory();
+			if (archive != null) modelFactory = GameRecorder.recording(modelFactory, recording);
 			var model = modelFactory.build(new GameSetup(
 							setup.graphProperty().get(),
 							ImmutableList.copyOf(setup.revealRounds())),
@@ -203,6 +230,7 @@ public final class LocalGameController extends BaseGameController {
 				@Override public void onModelChanged(@Nonnull Board board, @Nonnull Event event) {
 					if (event == Event.GAME_OVER) {
 //						model.recorded().forEach(a -> System.out.println(a));
+						if (archive != null) archive(archive, recording);
 						Platform.runLater(() -> notifyGameOver(model, controls, setup,
 								board.getWinner()));
 					}
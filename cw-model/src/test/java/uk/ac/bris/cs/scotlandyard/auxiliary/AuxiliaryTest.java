@@ -0,0 +1,29 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+import uk.ac.bris.cs.scotlandyard.model.ZobristTest;
+
+/**
+ * Includes all tests that are not part of the assignment
+ */
+@RunWith(Suite.class)
+@Suite.SuiteClasses({
+		ScotlandYardGraphReaderTest.class,
+		CompactGraphTest.class,
+		LocationSetTest.class,
+		MoveTableTest.class,
+		SecretDoubleMoveTest.class,
+		PlayerTest.class,
+		LogEntryTest.class,
+		SearchBoardTest.class,
+		ZobristTest.class,
+		DistanceOracleTest.class,
+		TicketDistancesTest.class,
+		HeadlessRunnerTest.class,
+		TournamentTest.class,
+		GameRecordTest.class,
+		GameArchiveTest.class
+})
+public class AuxiliaryTest {}
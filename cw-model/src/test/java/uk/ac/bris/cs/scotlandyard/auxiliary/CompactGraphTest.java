@@ -0,0 +1,75 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import uk.ac.bris.cs.scotlandyard.model.CompactGraph;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the compact graph. This should always pass but is not part of the assignment.
+ */
+public class CompactGraphTest {
+
+	@Test public void testSmallGraph() {
+		CompactGraph graph = CompactGraph.of(ScotlandYard.readGraph(String.join("\n",
+				"3 3",
+				"1", "2", "3",
+				"1 2 Ferry",
+				"1 2 Bus",
+				"1 3 Bus")));
+		assertThat(graph.nodeCount()).isEqualTo(3);
+		assertThat(graph.maxNode()).isEqualTo(3);
+		assertThat(graph.edgeCount()).isEqualTo(4);
+		assertThat(graph.degree(1)).isEqualTo(2);
+		assertThat(graph.degree(2)).isEqualTo(1);
+		assertThat(graph.degree(0)).isZero();
+		assertThat(graph.degree(42)).isZero();
+		assertThat(graph.transportsBetween(2, 1))
+				.isEqualTo(CompactGraph.mask(Transport.BUS) | CompactGraph.mask(Transport.FERRY));
+		assertThat(graph.transportsBetween(2, 3)).isZero();
+	}
+
+	@Test public void testMatchesStandardGraph() throws IOException {
+		ImmutableValueGraph<Integer, ImmutableSet<Transport>> standard = ScotlandYard.standardGraph();
+		CompactGraph graph = CompactGraph.of(standard);
+		assertThat(graph.nodeCount()).isEqualTo(standard.nodes().size());
+		assertThat(graph.edgeCount()).isEqualTo(standard.edges().size() * 2);
+		for (int node : standard.nodes()) {
+			assertThat(graph.degree(node)).isEqualTo(standard.adjacentNodes(node).size());
+			for (int e = graph.firstEdge(node); e < graph.endEdge(node); e++) {
+				int target = graph.target(e);
+				assertThat(standard.adjacentNodes(node)).contains(target);
+				for (Transport t : Transport.values())
+					assertThat((graph.transports(e) & CompactGraph.mask(t)) != 0)
+							.isEqualTo(standard.edgeValue(node, target).orElseThrow().contains(t));
+			}
+		}
+	}
+
+	@Test public void testAccepts() {
+		int mask = CompactGraph.mask(Transport.TAXI) | CompactGraph.mask(Transport.FERRY);
+		assertThat(CompactGraph.accepts(mask, Ticket.TAXI)).isTrue();
+		assertThat(CompactGraph.accepts(mask, Ticket.BUS)).isFalse();
+		assertThat(CompactGraph.accepts(mask, Ticket.SECRET)).isTrue();
+		assertThat(CompactGraph.accepts(0, Ticket.SECRET)).isFalse();
+	}
+
+	@Test public void testSharedBySetups() throws IOException {
+		var standard = ScotlandYard.standardGraph();
+		var a = new GameSetup(standard, ScotlandYard.STANDARD24ROUNDS);
+		var b = new GameSetup(standard, ImmutableList.of(true));
+		assertThat(a.compactGraph()).isSameAs(b.compactGraph());
+	}
+
+}
@@ -0,0 +1,81 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import uk.ac.bris.cs.scotlandyard.model.DistanceOracle;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the distance oracle. This should always pass but is not part of the assignment.
+ */
+public class DistanceOracleTest {
+
+	// Plain breadth first search over the value graph
+	private static Map<Integer, Integer> distancesFrom(
+			ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph, int source) {
+		Map<Integer, Integer> distances = new HashMap<>();
+		distances.put(source, 0);
+		var queue = new ArrayDeque<Integer>();
+		queue.add(source);
+		while (!queue.isEmpty()) {
+			int node = queue.poll();
+			for (int adjacent : graph.adjacentNodes(node)) {
+				if (distances.containsKey(adjacent)) continue;
+				distances.put(adjacent, distances.get(node) + 1);
+				queue.add(adjacent);
+			}
+		}
+		return distances;
+	}
+
+	@Test public void testMatchesBreadthFirstSearch() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		var oracle = DistanceOracle.of(graph);
+		for (int source : graph.nodes()) {
+			var expected = distancesFrom(graph, source);
+			for (int destination : graph.nodes())
+				assertThat(oracle.distance(source, destination))
+						.isEqualTo(expected.getOrDefault(destination, DistanceOracle.UNREACHABLE));
+		}
+	}
+
+	@Test public void testRestrictedToTransports() {
+		var graph = ScotlandYard.readGraph(String.join("\n",
+				"4 3",
+				"1", "2", "3", "4",
+				"1 2 Taxi",
+				"2 3 Bus",
+				"1 3 Ferry"));
+		var all = DistanceOracle.of(graph);
+		var roads = DistanceOracle.of(graph, Transport.TAXI, Transport.BUS);
+		var taxi = DistanceOracle.of(graph, Transport.TAXI);
+		assertThat(all.distance(1, 3)).isEqualTo(1);
+		assertThat(roads.distance(1, 3)).isEqualTo(2);
+		assertThat(taxi.distance(1, 3)).isEqualTo(DistanceOracle.UNREACHABLE);
+		assertThat(taxi.distance(2, 1)).isEqualTo(1);
+		assertThat(taxi.travels(Transport.TAXI)).isTrue();
+		assertThat(taxi.travels(Transport.FERRY)).isFalse();
+		assertThat(all.distance(1, 4)).isEqualTo(DistanceOracle.UNREACHABLE);
+		assertThat(all.distance(1, 42)).isEqualTo(DistanceOracle.UNREACHABLE);
+	}
+
+	@Test public void testSharedByGraph() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		assertThat(DistanceOracle.of(graph)).isSameAs(DistanceOracle.of(graph));
+		assertThat(DistanceOracle.of(graph, Transport.BUS, Transport.TAXI))
+				.isSameAs(DistanceOracle.of(graph, Transport.TAXI, Transport.BUS));
+		assertThat(DistanceOracle.of(graph, Transport.TAXI)).isNotSameAs(DistanceOracle.of(graph));
+	}
+
+}
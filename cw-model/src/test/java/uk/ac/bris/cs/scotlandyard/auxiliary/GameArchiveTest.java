@@ -0,0 +1,107 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameArchive;
+import uk.ac.bris.cs.scotlandyard.model.GameRecord;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MoveCode;
+import uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests adding games to a {@link GameArchive} and reading them back. This should always pass but
+ * is not part of the assignment.
+ */
+public class GameArchiveTest {
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	private static GameSetup setup() throws IOException {
+		return new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+	}
+
+	// A random game, played to the end
+	private static GameRecord game(GameSetup setup, Random random) {
+		int start = ScotlandYard.MRX_LOCATIONS.get(random.nextInt(ScotlandYard.MRX_LOCATIONS.size()));
+		Player mrX = new Player(MRX, defaultMrXTickets(), start);
+		var detectives = ImmutableList.of(
+				new Player(RED, defaultDetectiveTickets(), 91),
+				new Player(BLUE, defaultDetectiveTickets(), 94));
+		GameState state = new PackedGameStateFactory().build(setup, mrX, detectives);
+		long[] moves = new long[0];
+		while (!state.getAvailableMoves().isEmpty()) {
+			List<Move> available = new ArrayList<>(state.getAvailableMoves());
+			Move move = available.get(random.nextInt(available.size()));
+			moves = Arrays.copyOf(moves, moves.length + 1);
+			moves[moves.length - 1] = MoveCode.of(move);
+			state = state.advance(move);
+		}
+		return new GameRecord(setup.rounds, mrX, detectives, moves);
+	}
+
+	@Test public void testGamesReadBackInAnyOrder() throws IOException {
+		var setup = setup();
+		var random = new Random(4);
+		Path file = folder.getRoot().toPath().resolve("games");
+		List<GameRecord> games = new ArrayList<>();
+		try (var writer = GameArchive.append(file)) {
+			for (int i = 0; i < 30; i++) {
+				games.add(game(setup, random));
+				writer.add(games.get(i));
+			}
+		}
+		GameArchive archive = GameArchive.open(file);
+		assertThat(archive.size()).isEqualTo(games.size());
+		for (int i = games.size() - 1; i >= 0; i -= 7) assertThat(archive.game(i)).isEqualTo(games.get(i));
+		GameRecord game = games.get(12);
+		int ply = game.size() / 2;
+		assertThat(archive.replay(12, ply, new PackedGameStateFactory(), setup).getMrXTravelLog())
+				.isEqualTo(game.replay(new PackedGameStateFactory(), setup, ply).getMrXTravelLog());
+	}
+
+	@Test public void testAppendingAfterACrashWritesOverTheCutGame() throws IOException {
+		var setup = setup();
+		var random = new Random(6);
+		Path file = folder.getRoot().toPath().resolve("games");
+		GameRecord first = game(setup, random);
+		try (var writer = GameArchive.append(file)) {
+			writer.add(first);
+		}
+		// a game whose data was written but not its index entry
+		Files.write(file, new byte[]{0x53, 0x59, 0x47}, StandardOpenOption.APPEND);
+		assertThat(GameArchive.open(file).size()).isEqualTo(1);
+		GameRecord second = game(setup, random);
+		try (var writer = GameArchive.append(file)) {
+			writer.add(second);
+		}
+		GameArchive archive = GameArchive.open(file);
+		assertThat(archive.size()).isEqualTo(2);
+		assertThat(archive.game(0)).isEqualTo(first);
+		assertThat(archive.game(1)).isEqualTo(second);
+	}
+
+}
@@ -0,0 +1,188 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameRecord;
+import uk.ac.bris.cs.scotlandyard.model.GameRecorder;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Model;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MoveCode;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.MyModelFactory;
+import uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests writing games with {@link GameRecorder} and reading and replaying them with
+ * {@link GameRecord}. This should always pass but is not part of the assignment.
+ */
+public class GameRecordTest {
+
+	private static GameSetup setup() throws IOException {
+		return new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+	}
+
+	private static Player mrX(int location) { return new Player(MRX, defaultMrXTickets(), location); }
+	private static ImmutableList<Player> detectives() {
+		return ImmutableList.of(
+				new Player(RED, defaultDetectiveTickets(), 91),
+				new Player(BLUE, defaultDetectiveTickets(), 94));
+	}
+
+	// Plays a random game through a recording model and returns the moves made
+	private static List<Move> play(Model model, Random random) {
+		List<Move> played = new ArrayList<>();
+		Board board = model.getCurrentBoard();
+		while (board.getWinner().isEmpty() && !board.getAvailableMoves().isEmpty()) {
+			List<Move> moves = new ArrayList<>(board.getAvailableMoves());
+			Move move = moves.get(random.nextInt(moves.size()));
+			model.chooseMove(move);
+			played.add(move);
+			board = model.getCurrentBoard();
+		}
+		return played;
+	}
+
+	@Test public void testRecordedGamesReplayToTheSameBoard() throws IOException {
+		var setup = setup();
+		var random = new Random(5);
+		var out = new ByteArrayOutputStream();
+		var factory = GameRecorder.recording(new MyModelFactory(), out);
+		List<List<Move>> games = new ArrayList<>();
+		List<Board> boards = new ArrayList<>();
+		for (int game = 0; game < 5; game++) {
+			Model model = factory.build(setup, mrX(106 + game), detectives());
+			games.add(play(model, random));
+			boards.add(model.getCurrentBoard());
+		}
+		var in = new ByteArrayInputStream(out.toByteArray());
+		for (int game = 0; game < games.size(); game++) {
+			GameRecord record = GameRecord.read(in).orElseThrow();
+			assertThat(record.mrX).isEqualTo(mrX(106 + game));
+			assertThat(record.detectives).isEqualTo(detectives());
+			assertThat(record.rounds).isEqualTo(setup.rounds);
+			assertThat(Arrays.stream(record.moves()).mapToObj(MoveCode::toMove))
+					.containsExactlyElementsOf(games.get(game));
+			for (var factoryUnderTest : List.of(new MyGameStateFactory(), new PackedGameStateFactory())) {
+				GameState state = record.replay(factoryUnderTest, setup);
+				Board board = boards.get(game);
+				assertThat(state.getMrXTravelLog()).isEqualTo(board.getMrXTravelLog());
+				assertThat(state.getWinner()).isEqualTo(board.getWinner());
+				for (Piece piece : board.getPlayers())
+					if (piece.isDetective()) assertThat(state.getDetectiveLocation((Piece.Detective) piece))
+							.isEqualTo(board.getDetectiveLocation((Piece.Detective) piece));
+			}
+		}
+		assertThat(GameRecord.read(in)).isEmpty();
+	}
+
+	@Test public void testRecordsAreSmall() throws IOException {
+		var out = new ByteArrayOutputStream();
+		Model model = GameRecorder.recording(new MyModelFactory(), out).build(setup(), mrX(106), detectives());
+		List<Move> moves = play(model, new Random(8));
+		// a header of 50 bytes for three players, at most 5 bytes per move and the end byte
+		assertThat(out.size()).isLessThanOrEqualTo(50 + 5 * moves.size() + 1);
+	}
+
+	@Test public void testWriteAndReadRoundTrip() throws IOException {
+		var setup = setup();
+		GameState state = new PackedGameStateFactory().build(setup, mrX(106), detectives());
+		long[] moves = new long[10];
+		var random = new Random(2);
+		for (int i = 0; i < moves.length; i++) {
+			List<Move> available = new ArrayList<>(state.getAvailableMoves());
+			Move move = available.get(random.nextInt(available.size()));
+			moves[i] = MoveCode.of(move);
+			state = state.advance(move);
+		}
+		var record = new GameRecord(setup.rounds, mrX(106), detectives(), moves);
+		var out = new ByteArrayOutputStream();
+		record.write(out);
+		assertThat(GameRecord.read(new ByteArrayInputStream(out.toByteArray()))).contains(record);
+		// a recording cut short after a move still reads
+		byte[] cut = Arrays.copyOf(out.toByteArray(), out.size() - 1);
+		assertThat(GameRecord.read(new ByteArrayInputStream(cut))).contains(record);
+		assertThat(record.replay(new PackedGameStateFactory(), setup, 4).getMrXTravelLog())
+				.isEqualTo(new GameRecord(setup.rounds, mrX(106), detectives(), Arrays.copyOf(moves, 4))
+						.replay(new MyGameStateFactory(), setup).getMrXTravelLog());
+	}
+
+	@Test public void testPlayersReadBackWithTheirOwnTickets() throws IOException {
+		var setup = setup();
+		var record = new GameRecord(setup.rounds,
+				new Player(MRX, ImmutableMap.of(TAXI, 4, SECRET, 5), 106),
+				ImmutableList.of(new Player(RED, ImmutableMap.of(TAXI, 11, BUS, 0), 91)), new long[0]);
+		var out = new ByteArrayOutputStream();
+		record.write(out);
+		GameRecord read = GameRecord.read(new ByteArrayInputStream(out.toByteArray())).orElseThrow();
+		assertThat(read).isEqualTo(record);
+		assertThat(read.mrX.tickets()).containsOnlyKeys(TAXI, SECRET);
+		assertThat(read.detectives.get(0).tickets()).containsOnlyKeys(TAXI, BUS);
+	}
+
+	@Test public void testMovesChosenByObserversAreRecordedInOrder() throws IOException {
+		var out = new ByteArrayOutputStream();
+		Model model = GameRecorder.recording(new MyModelFactory(), out).build(setup(), mrX(106), detectives());
+		List<Move> chosen = new ArrayList<>();
+		// every move made chooses the next one, until six are made
+		model.registerObserver(new Model.Observer() {
+			@Override public void onModelChanged(@Nonnull Board board, @Nonnull Event event) {
+				if (event != Event.MOVE_MADE || chosen.size() == 6) return;
+				Move next = board.getAvailableMoves().iterator().next();
+				chosen.add(next);
+				model.chooseMove(next);
+			}
+		});
+		Move first = model.getCurrentBoard().getAvailableMoves().iterator().next();
+		chosen.add(first);
+		model.chooseMove(first);
+		GameRecord record = GameRecord.read(new ByteArrayInputStream(out.toByteArray())).orElseThrow();
+		assertThat(Arrays.stream(record.moves()).mapToObj(MoveCode::toMove)).containsExactlyElementsOf(chosen);
+	}
+
+	@Test public void testIllegalMovesAreNotRecorded() throws IOException {
+		var out = new ByteArrayOutputStream();
+		Model model = GameRecorder.recording(new MyModelFactory(), out).build(setup(), mrX(106), detectives());
+		assertThatThrownBy(() -> model.chooseMove(new Move.SingleMove(RED, 91, TAXI, 56)))
+				.isInstanceOf(IllegalArgumentException.class);
+		Move move = model.getCurrentBoard().getAvailableMoves().iterator().next();
+		model.chooseMove(move);
+		GameRecord record = GameRecord.read(new ByteArrayInputStream(out.toByteArray())).orElseThrow();
+		assertThat(record.moves()).containsExactly(MoveCode.of(move));
+	}
+
+	@Test public void testOtherDataThrows() {
+		assertThatThrownBy(() -> GameRecord.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5})))
+				.isInstanceOf(IOException.class);
+	}
+
+}
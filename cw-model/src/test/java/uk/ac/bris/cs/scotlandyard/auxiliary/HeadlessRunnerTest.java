@@ -0,0 +1,145 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import javax.annotation.Nonnull;
+
+import io.atlassian.fugue.Pair;
+import uk.ac.bris.cs.scotlandyard.headless.GameResult;
+import uk.ac.bris.cs.scotlandyard.headless.HeadlessRunner;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the headless game runner. This should always pass but is not part of the assignment.
+ */
+public class HeadlessRunnerTest {
+
+	// Always picks the same move for the same board
+	private static class FirstMoveAi implements Ai {
+		@Nonnull @Override public String name() { return "First"; }
+		@Nonnull @Override public Move pickMove(@Nonnull Board board, Pair<Long, TimeUnit> timeoutPair) {
+			return board.getAvailableMoves().stream()
+					.min(Comparator.comparing(Move::toString)).orElseThrow();
+		}
+	}
+
+	private static HeadlessRunner runner(Supplier<Ai> mrX, Supplier<Ai> detectives) throws IOException {
+		return new HeadlessRunner(new PackedGameStateFactory(),
+				new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS),
+				HeadlessRunner.standardPlayers(5), mrX, detectives, Duration.ofSeconds(10));
+	}
+
+	private static List<Long> seeds(int n) {
+		return LongStream.range(0, n).boxed().collect(Collectors.toList());
+	}
+
+	@Test public void testParallelGamesMatchSequentialGames() throws Exception {
+		var runner = runner(FirstMoveAi::new, FirstMoveAi::new);
+		var parallel = runner.run(seeds(32), 4);
+		assertThat(parallel).extracting(GameResult::seed).containsExactlyElementsOf(seeds(32));
+		for (GameResult result : parallel) {
+			GameResult sequential = runner.play(result.seed());
+			assertThat(result.winner()).isEqualTo(sequential.winner());
+			assertThat(result.rounds()).isEqualTo(sequential.rounds());
+			assertThat(result.mrXMoveNanos()).hasSameSizeAs(sequential.mrXMoveNanos());
+			assertThat(result.forfeit()).isEmpty();
+		}
+	}
+
+	@Test public void testSameAsPlayingWithOtherFactory() throws Exception {
+		var packed = runner(FirstMoveAi::new, FirstMoveAi::new);
+		var my = new HeadlessRunner(new MyGameStateFactory(),
+				new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS),
+				HeadlessRunner.standardPlayers(5), FirstMoveAi::new, FirstMoveAi::new,
+				Duration.ofSeconds(10));
+		for (long seed = 0; seed < 8; seed++)
+			assertThat(packed.play(seed).winner()).isEqualTo(my.play(seed).winner());
+	}
+
+	@Test public void testStreamsEveryResult() throws Exception {
+		List<GameResult> results = new ArrayList<>();
+		runner(FirstMoveAi::new, FirstMoveAi::new).run(seeds(10), 3, results::add);
+		assertThat(results).extracting(GameResult::seed).containsExactlyInAnyOrderElementsOf(seeds(10));
+	}
+
+	@Test public void testRecordsReplayTheGames() throws Exception {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		for (GameResult result : runner(FirstMoveAi::new, FirstMoveAi::new).run(seeds(4), 2)) {
+			GameState state = result.record().replay(new MyGameStateFactory(), setup);
+			assertThat(state.getWinner()).isEqualTo(result.winner());
+			assertThat(state.getMrXTravelLog()).hasSize(result.rounds());
+			assertThat(result.record().mrX).isEqualTo(HeadlessRunner.standardPlayers(5).apply(result.seed()).get(0));
+		}
+	}
+
+	@Test public void testSeedsUseEveryBit() {
+		var players = HeadlessRunner.standardPlayers(5);
+		// seeds in int range start as they always have
+		assertThat(players.apply(7).get(0).location()).isEqualTo(ScotlandYard.generateMrXLocation(7));
+		for (long seed = 0; seed < 8; seed++)
+			assertThat(players.apply(seed + (1L << 32))).isNotEqualTo(players.apply(seed));
+	}
+
+	@Test public void testThrowingAiForfeits() throws IOException {
+		var result = runner(() -> new FirstMoveAi() {
+			@Nonnull @Override public Move pickMove(@Nonnull Board board, Pair<Long, TimeUnit> timeoutPair) {
+				throw new IllegalStateException("boom");
+			}
+		}, FirstMoveAi::new).play(1);
+		assertThat(result.detectivesWon()).isTrue();
+		assertThat(result.forfeit()).hasValueSatisfying(reason -> assertThat(reason).contains("boom"));
+	}
+
+	@Test public void testIllegalMoveForfeits() throws IOException {
+		var result = runner(FirstMoveAi::new, () -> new FirstMoveAi() {
+			@Nonnull @Override public Move pickMove(@Nonnull Board board, Pair<Long, TimeUnit> timeoutPair) {
+				return new Move.SingleMove(Piece.Detective.RED, 1, ScotlandYard.Ticket.TAXI, 8);
+			}
+		}).play(1);
+		assertThat(result.winner()).containsExactly(Piece.MrX.MRX);
+		assertThat(result.forfeit()).isPresent();
+		assertThat(result.rounds()).isEqualTo(1);
+		// the forfeited move is not part of the game
+		assertThat(result.record().size()).isEqualTo(1);
+	}
+
+	@Test public void testSlowAiForfeits() throws Exception {
+		var runner = new HeadlessRunner(new PackedGameStateFactory(),
+				new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS),
+				HeadlessRunner.standardPlayers(2), () -> new FirstMoveAi() {
+					@Nonnull @Override public Move pickMove(@Nonnull Board board, Pair<Long, TimeUnit> timeoutPair) {
+						try {
+							Thread.sleep(timeoutPair.right().toMillis(timeoutPair.left()) + 20);
+						} catch (InterruptedException e) { throw new AssertionError(e); }
+						return super.pickMove(board, timeoutPair);
+					}
+				}, FirstMoveAi::new, Duration.ofMillis(10));
+		GameResult result = runner.run(ImmutableList.of(3L), 1).get(0);
+		assertThat(result.detectivesWon()).isTrue();
+		assertThat(result.forfeit()).hasValueSatisfying(reason -> assertThat(reason).contains("timed out"));
+	}
+
+}
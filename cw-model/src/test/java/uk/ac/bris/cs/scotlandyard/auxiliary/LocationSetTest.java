@@ -0,0 +1,211 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.LocationSet;
+import uk.ac.bris.cs.scotlandyard.model.LogEntry;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests {@link LocationSet} and the nodes game states keep for where MrX could be and where the
+ * detectives are. This should always pass but is not part of the assignment.
+ */
+public class LocationSetTest {
+
+	private static GameSetup setup() throws IOException {
+		return new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+	}
+
+	// every node but the detectives', most of them off ScotlandYard.MRX_LOCATIONS
+	private static List<Integer> startingNodes(GameSetup setup) {
+		List<Integer> starts = new ArrayList<>(setup.graph.nodes());
+		starts.removeAll(ImmutableSet.of(91, 94));
+		return starts;
+	}
+
+	private static Player mrX(int location) { return new Player(MRX, defaultMrXTickets(), location); }
+	private static ImmutableList<Player> detectives() {
+		return ImmutableList.of(
+				new Player(RED, defaultDetectiveTickets(), 91),
+				new Player(BLUE, defaultDetectiveTickets(), 94));
+	}
+
+	@Test public void testSetBasics() {
+		LocationSet set = LocationSet.of(ImmutableList.of(1, 64, 199));
+		assertThat(set.size()).isEqualTo(3);
+		assertThat(set.contains(64)).isTrue();
+		assertThat(set.contains(63)).isFalse();
+		assertThat(set.contains(-1)).isFalse();
+		assertThat(set.contains(1000)).isFalse();
+		assertThat(set.toArray()).containsExactly(1, 64, 199);
+		assertThat(set.toSet()).containsExactly(1, 64, 199);
+		assertThat(LocationSet.of(ImmutableList.of())).isEqualTo(LocationSet.of(-1));
+		assertThat(LocationSet.of(64)).isEqualTo(LocationSet.of(ImmutableList.of(64)));
+	}
+
+	@Test public void testStartsAnywhereButTheDetectives() throws IOException {
+		var setup = setup();
+		GameState state = new MyGameStateFactory().build(setup, mrX(106), detectives());
+		Set<Integer> expected = new HashSet<>(setup.graph.nodes());
+		expected.removeAll(ImmutableSet.of(91, 94));
+		assertThat(state.getMrXPossibleLocations().toSet()).isEqualTo(expected);
+	}
+
+	@Test public void testStartDoesNotDependOnWhereMrXIs() throws IOException {
+		var setup = setup();
+		LocationSet onList = new MyGameStateFactory().build(setup, mrX(106), detectives())
+				.getMrXPossibleLocations();
+		for (int start : ImmutableList.of(1, 2, 106)) {
+			assertThat(new MyGameStateFactory().build(setup, mrX(start), detectives())
+					.getMrXPossibleLocations()).isEqualTo(onList);
+			assertThat(new PackedGameStateFactory().build(setup, mrX(start), detectives())
+					.getMrXPossibleLocations()).isEqualTo(onList);
+			assertThat(new Forwarding(new MyGameStateFactory().build(setup, mrX(start), detectives()))
+					.getMrXPossibleLocations()).isEqualTo(onList);
+		}
+	}
+
+	@Test public void testRevealNarrowsToOneNode() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ImmutableList.of(true, false));
+		GameState state = new MyGameStateFactory().build(setup, mrX(106), detectives())
+				.advance(new SingleMove(MRX, 106, TAXI, 105));
+		assertThat(state.getMrXPossibleLocations().toSet()).containsExactly(105);
+	}
+
+	@Test public void testDetectiveMoveRemovesNode() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ImmutableList.of(false, false));
+		GameState state = new MyGameStateFactory().build(setup, mrX(106), detectives())
+				.advance(new SingleMove(MRX, 106, TAXI, 105));
+		assertThat(state.getMrXPossibleLocations().contains(107)).isTrue();
+		state = state.advance(new SingleMove(RED, 91, TAXI, 107));
+		assertThat(state.getMrXPossibleLocations().contains(107)).isFalse();
+	}
+
+	@Test public void testIncrementalSetsMatchAcrossFactoriesAndFromScratch() throws IOException {
+		var setup = setup();
+		var random = new Random(11);
+		List<Integer> starts = startingNodes(setup);
+		for (int game = 0; game < 20; game++) {
+			int start = starts.get(random.nextInt(starts.size()));
+			GameState my = new MyGameStateFactory().build(setup, mrX(start), detectives());
+			GameState packed = new PackedGameStateFactory().build(setup, mrX(start), detectives());
+			Set<Integer> expected = new HashSet<>(setup.graph.nodes());
+			expected.removeAll(ImmutableSet.of(91, 94));
+			int mrXLocation = start;
+			while (!my.getAvailableMoves().isEmpty()) {
+				assertThat(my.getMrXPossibleLocations().toSet()).isEqualTo(expected);
+				assertThat(packed.getMrXPossibleLocations()).isEqualTo(my.getMrXPossibleLocations());
+				assertThat(expected).contains(mrXLocation);
+				assertThat(my.getDetectiveOccupancy().toSet()).isEqualTo(detectiveLocations(my));
+				assertThat(packed.getDetectiveOccupancy()).isEqualTo(my.getDetectiveOccupancy());
+				List<Move> moves = new ArrayList<>(my.getAvailableMoves());
+				Move move = moves.get(random.nextInt(moves.size()));
+				int logSize = my.getMrXTravelLog().size();
+				my = my.advance(move);
+				packed = packed.advance(move);
+				if (move.commencedBy() == MRX) {
+					mrXLocation = move.visit(new Move.FunctionalVisitor<>(m -> m.destination, m -> m.destination2));
+					for (LogEntry entry : my.getMrXTravelLog().subList(logSize, my.getMrXTravelLog().size()))
+						expected = follow(setup, my, expected, entry);
+				} else {
+					expected.remove(((SingleMove) move).destination);
+				}
+			}
+		}
+	}
+
+	@Test public void testDefaultsHoldTheModelsSets() throws IOException {
+		var setup = setup();
+		var random = new Random(13);
+		List<Integer> starts = startingNodes(setup);
+		for (int game = 0; game < 20; game++) {
+			int start = starts.get(random.nextInt(starts.size()));
+			GameState my = new MyGameStateFactory().build(setup, mrX(start), detectives());
+			int mrXLocation = start;
+			while (!my.getAvailableMoves().isEmpty()) {
+				assertThat(new Forwarding(my).getDetectiveOccupancy()).isEqualTo(my.getDetectiveOccupancy());
+				Set<Integer> fromLog = new Forwarding(my).getMrXPossibleLocations().toSet();
+				assertThat(fromLog).containsAll(my.getMrXPossibleLocations().toSet());
+				assertThat(fromLog).contains(mrXLocation);
+				assertThat(fromLog).doesNotContainAnyElementsOf(detectiveLocations(my));
+				List<Move> moves = new ArrayList<>(my.getAvailableMoves());
+				Move move = moves.get(random.nextInt(moves.size()));
+				if (move.commencedBy() == MRX)
+					mrXLocation = move.visit(new Move.FunctionalVisitor<>(m -> m.destination, m -> m.destination2));
+				my = my.advance(move);
+			}
+		}
+	}
+
+	// A game state of another model, keeping nothing but what the board shows
+	private static final class Forwarding implements GameState {
+		private final GameState state;
+		Forwarding(GameState state) { this.state = state; }
+		@Nonnull @Override public GameSetup getSetup() { return state.getSetup(); }
+		@Nonnull @Override public ImmutableSet<Piece> getPlayers() { return state.getPlayers(); }
+		@Nonnull @Override public Optional<Integer> getDetectiveLocation(Piece.Detective detective) {
+			return state.getDetectiveLocation(detective);
+		}
+		@Nonnull @Override public Optional<TicketBoard> getPlayerTickets(Piece piece) {
+			return state.getPlayerTickets(piece);
+		}
+		@Nonnull @Override public ImmutableList<LogEntry> getMrXTravelLog() { return state.getMrXTravelLog(); }
+		@Nonnull @Override public ImmutableSet<Piece> getWinner() { return state.getWinner(); }
+		@Nonnull @Override public ImmutableSet<Move> getAvailableMoves() { return state.getAvailableMoves(); }
+		@Nonnull @Override public GameState advance(Move move) { return new Forwarding(state.advance(move)); }
+	}
+
+	// Where MrX could be after the entry, worked out from the graph directly
+	private static Set<Integer> follow(GameSetup setup, GameState state, Set<Integer> from, LogEntry entry) {
+		if (entry.location().isPresent()) return new HashSet<>(ImmutableSet.of(entry.location().get()));
+		Set<Integer> next = new HashSet<>();
+		for (int node : from) {
+			for (int adjacent : setup.graph.adjacentNodes(node)) {
+				for (Transport t : setup.graph.edgeValueOrDefault(node, adjacent, ImmutableSet.of()))
+					if (entry.ticket() == Ticket.SECRET || t.requiredTicket() == entry.ticket()) next.add(adjacent);
+			}
+		}
+		// detectives only move after MrX's whole move, so they are where they were before it
+		next.removeAll(detectiveLocations(state));
+		return next;
+	}
+
+	private static Set<Integer> detectiveLocations(GameState state) {
+		Set<Integer> locations = new HashSet<>();
+		for (Piece piece : state.getPlayers())
+			if (piece.isDetective()) locations.add(state.getDetectiveLocation((Piece.Detective) piece).orElseThrow());
+		return locations;
+	}
+
+}
@@ -0,0 +1,50 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Objects;
+
+import uk.ac.bris.cs.scotlandyard.model.LogEntry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+
+/**
+ * Tests {@link LogEntry}'s shared instances. This should always pass but is not part of the
+ * assignment.
+ */
+public class LogEntryTest {
+
+	@Test public void testEntriesAreShared() {
+		assertThat(LogEntry.hidden(TAXI)).isSameAs(LogEntry.hidden(TAXI));
+		assertThat(LogEntry.reveal(BUS, 199)).isSameAs(LogEntry.reveal(BUS, 199));
+		assertThat(LogEntry.reveal(BUS, 199)).isNotEqualTo(LogEntry.reveal(TAXI, 199));
+		assertThat(LogEntry.reveal(SECRET, 1000)).isEqualTo(LogEntry.reveal(SECRET, 1000));
+		assertThat(LogEntry.reveal(SECRET, 1000).location()).contains(1000);
+	}
+
+	@Test public void testHashCodesMatchObjectsHash() {
+		assertThat(LogEntry.hidden(SECRET).hashCode()).isEqualTo(Objects.hash(SECRET, -1));
+		assertThat(LogEntry.reveal(TAXI, 42).hashCode()).isEqualTo(Objects.hash(TAXI, 42));
+	}
+
+	@Test public void testDeserialisedEntriesAreShared() throws IOException, ClassNotFoundException {
+		var bytes = new ByteArrayOutputStream();
+		try (var out = new ObjectOutputStream(bytes)) {
+			out.writeObject(LogEntry.hidden(BUS));
+			out.writeObject(LogEntry.reveal(TAXI, 13));
+		}
+		try (var in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			assertThat(in.readObject()).isSameAs(LogEntry.hidden(BUS));
+			assertThat(in.readObject()).isSameAs(LogEntry.reveal(TAXI, 13));
+		}
+	}
+
+}
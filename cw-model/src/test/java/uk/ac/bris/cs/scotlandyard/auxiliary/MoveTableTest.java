@@ -0,0 +1,111 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.MoveCode;
+import uk.ac.bris.cs.scotlandyard.model.MoveTable;
+import uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.YELLOW;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests {@link MoveCode} and {@link MoveTable}. This should always pass but is not part of the
+ * assignment.
+ */
+public class MoveTableTest {
+
+	private static GameSetup setup() throws IOException {
+		return new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+	}
+
+	@Test public void testCodesKeepEveryPart() {
+		long single = MoveCode.single(YELLOW, 199, SECRET, 65535);
+		assertThat(MoveCode.isDouble(single)).isFalse();
+		assertThat(MoveCode.piece(single)).isEqualTo(YELLOW);
+		assertThat(MoveCode.source(single)).isEqualTo(199);
+		assertThat(MoveCode.ticket(single)).isEqualTo(SECRET);
+		assertThat(MoveCode.destination(single)).isEqualTo(65535);
+		assertThat(MoveCode.toMove(single)).isEqualTo(new SingleMove(YELLOW, 199, SECRET, 65535));
+
+		long dbl = MoveCode.doubleMove(1, TAXI, 8, BUS, 58);
+		assertThat(MoveCode.isDouble(dbl)).isTrue();
+		assertThat(MoveCode.piece(dbl)).isEqualTo(MRX);
+		assertThat(MoveCode.ticket1(dbl)).isEqualTo(TAXI);
+		assertThat(MoveCode.destination1(dbl)).isEqualTo(8);
+		assertThat(MoveCode.ticket(dbl)).isEqualTo(BUS);
+		assertThat(MoveCode.destination(dbl)).isEqualTo(58);
+		assertThat(MoveCode.toMove(dbl)).isEqualTo(new DoubleMove(MRX, 1, TAXI, 8, BUS, 58));
+		assertThat(single).isNotNegative().isNotEqualTo(MoveCode.NONE);
+		assertThat(dbl).isNotNegative();
+	}
+
+	@Test public void testNodesOutOfRangeThrow() {
+		assertThatThrownBy(() -> MoveCode.single(MRX, -1, TAXI, 1))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> MoveCode.single(MRX, 1, TAXI, 65536))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testTableMovesAreSharedAndMatchCodes() throws IOException {
+		var setup = setup();
+		MoveTable table = setup.moveTable();
+		assertThat(setup.moveTable()).isSameAs(table);
+		var random = new Random(3);
+		Set<Long> codes = new HashSet<>();
+		for (int game = 0; game < 10; game++) {
+			GameState state = new PackedGameStateFactory().build(setup,
+					new Player(MRX, defaultMrXTickets(), 106),
+					ImmutableList.of(new Player(BLUE, defaultDetectiveTickets(), 94)));
+			while (!state.getAvailableMoves().isEmpty()) {
+				for (Move move : state.getAvailableMoves()) {
+					long code = MoveCode.of(move);
+					codes.add(code);
+					assertThat(table.move(code)).isSameAs(move);
+					assertThat(MoveCode.toMove(code)).isEqualTo(move).hasSameHashCodeAs(move);
+				}
+				List<Move> moves = new ArrayList<>(state.getAvailableMoves());
+				state = state.advance(moves.get(random.nextInt(moves.size())));
+			}
+		}
+		assertThat(codes).hasSizeGreaterThan(1000);
+	}
+
+	@Test public void testHashCodesMatchObjectsHash() {
+		assertThat(new SingleMove(BLUE, 1, TAXI, 8).hashCode())
+				.isEqualTo(Objects.hash(BLUE, TAXI, 8));
+		assertThat(new DoubleMove(MRX, 1, TAXI, 8, SECRET, 18).hashCode())
+				.isEqualTo(Objects.hash(MRX, TAXI, 8, SECRET, 18));
+	}
+
+	@Test public void testNonAdjacentCodeThrows() throws IOException {
+		assertThatThrownBy(() -> setup().moveTable().move(MoveCode.single(MRX, 1, TAXI, 199)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
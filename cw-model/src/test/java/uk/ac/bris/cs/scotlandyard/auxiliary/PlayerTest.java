@@ -0,0 +1,67 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Objects;
+
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.DOUBLE;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests {@link Player}'s packed ticket counts against its {@link Player#tickets()} map. This
+ * should always pass but is not part of the assignment.
+ */
+public class PlayerTest {
+
+	@Test public void testCountsFollowUseAndGive() {
+		Player player = new Player(MRX, defaultMrXTickets(), 1);
+		Player used = player.use(ImmutableList.of(TAXI, TAXI, DOUBLE));
+		assertThat(used.count(TAXI)).isEqualTo(player.count(TAXI) - 2);
+		assertThat(used.count(DOUBLE)).isEqualTo(player.count(DOUBLE) - 1);
+		assertThat(used.tickets().get(TAXI)).isEqualTo(used.count(TAXI));
+		assertThat(used.give(ImmutableList.of(TAXI, TAXI)).give(DOUBLE)).isEqualTo(player);
+		assertThat(used.give(DOUBLE).hasAtLeast(DOUBLE, 2)).isTrue();
+	}
+
+	@Test public void testEqualsAndHashCodeMatchTheMap() {
+		Player player = new Player(MRX, defaultMrXTickets(), 1);
+		Player derived = player.use(SECRET).give(SECRET).at(2).at(1);
+		assertThat(derived).isEqualTo(player).hasSameHashCodeAs(player);
+		assertThat(derived.tickets()).isEqualTo(player.tickets());
+		assertThat(player.hashCode()).isEqualTo(Objects.hash(MRX, player.tickets(), 1));
+	}
+
+	@Test public void testMissingTicketsStayMissing() {
+		Player player = new Player(RED, ImmutableMap.of(TAXI, 1), 1);
+		assertThat(player.has(BUS)).isFalse();
+		assertThat(player.give(BUS).tickets()).isEqualTo(ImmutableMap.of(TAXI, 1));
+		assertThat(player.use(TAXI).tickets()).isEqualTo(ImmutableMap.of(TAXI, 0));
+		assertThatThrownBy(() -> player.use(BUS)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> player.use(TAXI).use(TAXI)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testCountsOutOfRangeThrow() {
+		var tickets = new HashMap<Ticket, Integer>();
+		tickets.put(TAXI, -1);
+		assertThatThrownBy(() -> new Player(RED, ImmutableMap.copyOf(tickets), 1))
+				.isInstanceOf(IllegalArgumentException.class);
+		tickets.put(TAXI, 4096);
+		assertThatThrownBy(() -> new Player(RED, ImmutableMap.copyOf(tickets), 1))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
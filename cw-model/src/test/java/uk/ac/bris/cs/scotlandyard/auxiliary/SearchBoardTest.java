@@ -0,0 +1,140 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.SearchBoard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.WHITE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.YELLOW;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests the search board against {@link MyGameStateFactory}. This should always pass but is not
+ * part of the assignment.
+ */
+public class SearchBoardTest {
+
+	private static Player[] players() {
+		return new Player[]{
+				new Player(MRX, defaultMrXTickets(), 106),
+				new Player(RED, defaultDetectiveTickets(), 91),
+				new Player(GREEN, defaultDetectiveTickets(), 29),
+				new Player(BLUE, defaultDetectiveTickets(), 94),
+				new Player(WHITE, defaultDetectiveTickets(), 50),
+				new Player(YELLOW, defaultDetectiveTickets(), 138)};
+	}
+
+	private static void assertSamePosition(SearchBoard board, GameState state, List<Move> buffer) {
+		board.generateMoves(buffer);
+		assertThat(buffer).doesNotHaveDuplicates();
+		assertThat(buffer).containsExactlyInAnyOrderElementsOf(state.getAvailableMoves());
+		assertThat(board.getWinner()).isEqualTo(state.getWinner());
+		assertThat(board.isGameOver()).isEqualTo(!state.getWinner().isEmpty());
+		assertThat(board.getMrXTravelLog()).isEqualTo(state.getMrXTravelLog());
+		for (Piece piece : state.getPlayers()) {
+			for (Ticket ticket : Ticket.values())
+				assertThat(board.count(piece, ticket))
+						.isEqualTo(state.getPlayerTickets(piece).orElseThrow().getCount(ticket));
+			if (piece.isDetective())
+				assertThat(board.location(piece)).isEqualTo(
+						state.getDetectiveLocation((Piece.Detective) piece).orElseThrow());
+		}
+	}
+
+	@Test public void testRandomPlayoutsMatchGameState() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		var random = new Random(42);
+		List<Move> buffer = new ArrayList<>();
+		for (int game = 0; game < 20; game++) {
+			Player[] players = players();
+			GameState state = new MyGameStateFactory().build(setup, players[0],
+					ImmutableList.copyOf(players).subList(1, players.length));
+			var board = new SearchBoard(setup, players[0],
+					ImmutableList.copyOf(players).subList(1, players.length));
+			List<GameState> history = new ArrayList<>();
+			while (state.getWinner().isEmpty()) {
+				assertSamePosition(board, state, buffer);
+				// stuck detectives with tickets left don't end the game in the model either
+				if (buffer.isEmpty()) break;
+				Move move = buffer.get(random.nextInt(buffer.size()));
+				history.add(state);
+				state = state.advance(move);
+				board.makeMove(move);
+				assertThat(board.ply()).isEqualTo(history.size());
+			}
+			assertSamePosition(board, state, buffer);
+			// unwinding must restore every earlier position
+			while (!history.isEmpty()) {
+				board.unmakeMove();
+				assertSamePosition(board, history.remove(history.size() - 1), buffer);
+			}
+			assertThat(board.ply()).isZero();
+		}
+	}
+
+	@Test public void testIllegalMoveAndEmptyUndoThrow() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		Player[] players = players();
+		var board = new SearchBoard(setup, players[0],
+				ImmutableList.copyOf(players).subList(1, players.length));
+		assertThatThrownBy(board::unmakeMove).isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> board.makeMove(
+				new Move.SingleMove(RED, 91, Ticket.TAXI, 105)))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThat(board.ply()).isZero();
+	}
+
+	@Test public void testRejectsPlayersTheModelRejects() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		Player mrX = players()[0];
+		assertThatThrownBy(() -> new SearchBoard(setup, mrX, ImmutableList.of(
+				new Player(RED, defaultDetectiveTickets(), 91),
+				new Player(RED, defaultDetectiveTickets(), 94))))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new SearchBoard(setup, mrX, ImmutableList.of(
+				new Player(RED, defaultDetectiveTickets(), 91),
+				new Player(BLUE, defaultDetectiveTickets(), 91))))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new SearchBoard(setup, mrX, ImmutableList.of(
+				new Player(RED, defaultMrXTickets(), 91))))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new SearchBoard(setup, mrX, ImmutableList.of(
+				new Player(MRX, defaultMrXTickets(), 91))))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testOfBoardMatchesState() throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		Player[] players = players();
+		GameState state = new MyGameStateFactory().build(setup, players[0],
+				ImmutableList.copyOf(players).subList(1, players.length));
+		state = state.advance(new Move.SingleMove(MRX, 106, Ticket.TAXI, 105));
+		var board = SearchBoard.of(state, 105);
+		assertThat(board.location(MRX)).isEqualTo(105);
+		assertThat(board.isRemaining(MRX)).isFalse();
+		assertSamePosition(board, state, new ArrayList<>());
+	}
+
+}
@@ -0,0 +1,81 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.DOUBLE;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.UNDERGROUND;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+
+/**
+ * Tests that MrX can start a double move with a secret ticket along an edge he holds no regular
+ * ticket for. This should always pass but is not part of the assignment.
+ */
+public class SecretDoubleMoveTest {
+
+	// 46 reaches 13 by underground only
+	private static final int SOURCE = 46;
+	private static final int UNDERGROUND_ONLY = 13;
+
+	private static GameState start(Factory<GameState> factory) throws IOException {
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		var mrX = new Player(MRX, ImmutableMap.of(
+				TAXI, 4, BUS, 0, UNDERGROUND, 0, DOUBLE, 2, SECRET, 2), SOURCE);
+		return factory.build(setup, mrX, ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 197)));
+	}
+
+	private static void assertSecretFirstMoves(Factory<GameState> factory) throws IOException {
+		GameState state = start(factory);
+		var graph = state.getSetup().graph;
+		assertThat(graph.edgeValue(SOURCE, UNDERGROUND_ONLY).orElseThrow())
+				.containsExactly(Transport.UNDERGROUND);
+		ImmutableSet<Move> moves = state.getAvailableMoves();
+		for (int destination : graph.adjacentNodes(UNDERGROUND_ONLY)) {
+			if (destination == SOURCE) continue;
+			var transports = graph.edgeValue(UNDERGROUND_ONLY, destination).orElseThrow();
+			if (transports.contains(Transport.TAXI))
+				assertThat(moves).contains(
+						new DoubleMove(MRX, SOURCE, SECRET, UNDERGROUND_ONLY, TAXI, destination));
+			assertThat(moves).contains(
+					new DoubleMove(MRX, SOURCE, SECRET, UNDERGROUND_ONLY, SECRET, destination));
+			// no underground tickets for the second leg
+			assertThat(moves).doesNotContain(
+					new DoubleMove(MRX, SOURCE, SECRET, UNDERGROUND_ONLY, UNDERGROUND, destination));
+		}
+		// and none for the first leg without a secret ticket
+		assertThat(moves).noneMatch(move -> move instanceof DoubleMove
+				&& ((DoubleMove) move).destination1 == UNDERGROUND_ONLY
+				&& ((DoubleMove) move).ticket1 != SECRET);
+	}
+
+	@Test public void testMyGameStateOffersSecretFirstDoubleMoves() throws IOException {
+		assertSecretFirstMoves(new MyGameStateFactory());
+	}
+
+	@Test public void testPackedGameStateOffersSecretFirstDoubleMoves() throws IOException {
+		assertSecretFirstMoves(new PackedGameStateFactory());
+	}
+}
@@ -0,0 +1,65 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import uk.ac.bris.cs.scotlandyard.model.DistanceOracle;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.TicketDistances;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+
+/**
+ * Tests for the ticket aware distances. This should always pass but is not part of the assignment.
+ */
+public class TicketDistancesTest {
+
+	private static final int TAXI = TicketDistances.mask(Ticket.TAXI);
+	private static final int BUS = TicketDistances.mask(Ticket.BUS);
+	private static final int UNDERGROUND = TicketDistances.mask(Ticket.UNDERGROUND);
+	private static final int SECRET = TicketDistances.mask(Ticket.SECRET);
+
+	@Test public void testDistancesDependOnTickets() {
+		var distances = TicketDistances.of(ScotlandYard.readGraph(String.join("\n",
+				"4 4",
+				"1", "2", "3", "4",
+				"1 2 Taxi",
+				"2 3 Taxi",
+				"1 3 Underground",
+				"3 4 Ferry")));
+		assertThat(distances.distance(1, 3, TAXI | BUS | UNDERGROUND)).isEqualTo(1);
+		assertThat(distances.distance(1, 3, TAXI | BUS)).isEqualTo(2);
+		assertThat(distances.distance(1, 3, BUS)).isEqualTo(DistanceOracle.UNREACHABLE);
+		assertThat(distances.distance(1, 4, TAXI | BUS | UNDERGROUND)).isEqualTo(DistanceOracle.UNREACHABLE);
+		assertThat(distances.distance(1, 4, SECRET)).isEqualTo(2);
+		assertThat(distances.distance(2, 2, 0)).isZero();
+	}
+
+	@Test public void testMasks() {
+		var red = new Player(RED, ImmutableMap.of(
+				Ticket.TAXI, 1, Ticket.BUS, 0, Ticket.UNDERGROUND, 2,
+				Ticket.SECRET, 0, Ticket.DOUBLE, 0), 1);
+		assertThat(TicketDistances.mask(red)).isEqualTo(TAXI | UNDERGROUND);
+		var mrX = new Player(MRX, ScotlandYard.defaultMrXTickets(), 1);
+		assertThat(TicketDistances.mask(mrX))
+				.isEqualTo(TAXI | BUS | UNDERGROUND | SECRET | TicketDistances.mask(Ticket.DOUBLE));
+		assertThat(TicketDistances.mask(ticket -> ticket == Ticket.BUS ? 3 : 0)).isEqualTo(BUS);
+	}
+
+	@Test public void testFullTicketsMatchPlainDistances() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		var oracle = DistanceOracle.of(graph);
+		assertThat(TicketDistances.of(graph).oracle(SECRET)).isSameAs(oracle);
+		assertThat(TicketDistances.of(graph).oracle(TAXI | BUS | UNDERGROUND))
+				.isNotSameAs(oracle);
+		assertThat(TicketDistances.of(graph)).isSameAs(TicketDistances.of(graph));
+	}
+
+}
@@ -0,0 +1,178 @@
+package uk.ac.bris.cs.scotlandyard.auxiliary;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import javax.annotation.Nonnull;
+
+import io.atlassian.fugue.Pair;
+import uk.ac.bris.cs.scotlandyard.headless.HeadlessRunner;
+import uk.ac.bris.cs.scotlandyard.headless.MatchupStats;
+import uk.ac.bris.cs.scotlandyard.headless.Tournament;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameArchive;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.PackedGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests for the tournament runner. This should always pass but is not part of the assignment.
+ */
+public class TournamentTest {
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final AtomicInteger created = new AtomicInteger();
+
+	// Always picks the first or last move, in the order of their names
+	private static class SortedMoveAi implements Ai {
+		private final boolean first;
+		SortedMoveAi(boolean first) {
+			this.first = first;
+			created.incrementAndGet();
+		}
+		@Nonnull @Override public String name() { return first ? "First" : "Last"; }
+		@Nonnull @Override public Move pickMove(@Nonnull Board board, Pair<Long, TimeUnit> timeoutPair) {
+			Comparator<Move> order = Comparator.comparing(Move::toString);
+			return board.getAvailableMoves().stream()
+					.min(first ? order : order.reversed()).orElseThrow();
+		}
+	}
+
+	private static Tournament tournament() throws Exception {
+		return new Tournament(new PackedGameStateFactory(),
+				new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS),
+				HeadlessRunner.standardPlayers(5),
+				ImmutableMap.<String, Supplier<Ai>>of(
+						"First", () -> new SortedMoveAi(true),
+						"Last", () -> new SortedMoveAi(false)),
+				Duration.ofSeconds(10));
+	}
+
+	private static List<Long> seeds(int from, int to) {
+		return LongStream.range(from, to).boxed().collect(Collectors.toList());
+	}
+
+	@Test public void testEveryMatchupIsPlayedAndRecorded() throws Exception {
+		Path csv = folder.getRoot().toPath().resolve("results.csv");
+		var stats = tournament().run(csv, seeds(0, 6), 2);
+		assertThat(stats).extracting(s -> s.mrXAi() + "/" + s.detectiveAi())
+				.containsExactly("First/First", "First/Last", "Last/First", "Last/Last");
+		for (MatchupStats matchup : stats) {
+			assertThat(matchup.games()).isEqualTo(6);
+			assertThat(matchup.forfeits()).isZero();
+			assertThat(matchup.mrXWins() + matchup.detectiveWins() + matchup.draws()).isEqualTo(6);
+			assertThat(matchup.averageRounds()).isPositive();
+			assertThat(matchup.mrXLatencyMillis(50)).isLessThanOrEqualTo(matchup.mrXLatencyMillis(99));
+		}
+		List<String> lines = Files.readAllLines(csv, StandardCharsets.UTF_8);
+		assertThat(lines).hasSize(1 + 4 * 6);
+		assertThat(lines.get(0)).startsWith("mrx_ai,detective_ai,seed,");
+	}
+
+	@Test public void testRunResumesFromRecordedGames() throws Exception {
+		Path csv = folder.getRoot().toPath().resolve("results.csv");
+		var first = tournament().run(csv, seeds(0, 4), 1);
+		created.set(0);
+		var again = tournament().run(csv, seeds(0, 4), 1);
+		// nothing left to play, so no Ai was even created
+		assertThat(created.get()).isZero();
+		assertThat(Files.readAllLines(csv, StandardCharsets.UTF_8)).hasSize(1 + 4 * 4);
+		for (int i = 0; i < first.size(); i++) {
+			assertThat(again.get(i).mrXWins()).isEqualTo(first.get(i).mrXWins());
+			assertThat(again.get(i).averageRounds()).isEqualTo(first.get(i).averageRounds());
+		}
+
+		var more = tournament().run(csv, seeds(0, 6), 1);
+		assertThat(Files.readAllLines(csv, StandardCharsets.UTF_8)).hasSize(1 + 4 * 6);
+		assertThat(more).allSatisfy(s -> assertThat(s.games()).isEqualTo(6));
+		// the statistics only cover the seeds asked for
+		assertThat(tournament().run(csv, seeds(0, 2), 1))
+				.allSatisfy(s -> assertThat(s.games()).isEqualTo(2));
+	}
+
+	@Test public void testPartialLastLineIsPlayedAgain() throws Exception {
+		Path csv = folder.getRoot().toPath().resolve("results.csv");
+		tournament().run(csv, seeds(0, 2), 1);
+		List<String> lines = Files.readAllLines(csv, StandardCharsets.UTF_8);
+		String last = lines.remove(lines.size() - 1);
+		lines.add(last.substring(0, last.indexOf(',', last.indexOf(',') + 1) + 2));
+		Files.write(csv, lines, StandardCharsets.UTF_8);
+		var stats = tournament().run(csv, seeds(0, 2), 1);
+		assertThat(stats).allSatisfy(s -> assertThat(s.games()).isEqualTo(2));
+	}
+
+	@Test public void testLineCutInItsLastFieldIsPlayedAgain() throws Exception {
+		Path csv = folder.getRoot().toPath().resolve("results.csv");
+		tournament().run(csv, seeds(0, 2), 1);
+		// a cut inside the last field, with no newline, still splits into every field
+		byte[] bytes = Files.readAllBytes(csv);
+		Files.write(csv, Arrays.copyOf(bytes, bytes.length - 2));
+		var stats = tournament().run(csv, seeds(0, 3), 1);
+		assertThat(stats).allSatisfy(s -> assertThat(s.games()).isEqualTo(3));
+		String content = Files.readString(csv, StandardCharsets.UTF_8);
+		assertThat(content).endsWith("\n");
+		List<String> lines = Files.readAllLines(csv, StandardCharsets.UTF_8);
+		assertThat(lines).hasSize(1 + 4 * 3);
+		// no record was glued onto the cut line, and the cut game was recorded again whole
+		assertThat(lines.subList(1, lines.size()))
+				.allSatisfy(line -> assertThat(line.split(",", -1)).hasSize(8))
+				.extracting(line -> List.of(line.split(",")).subList(0, 3))
+				.doesNotHaveDuplicates();
+	}
+
+	@Test public void testPlayedGamesAreArchived() throws Exception {
+		Path csv = folder.getRoot().toPath().resolve("results.csv");
+		Path archive = folder.getRoot().toPath().resolve("games.bin");
+		var setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		tournament().run(csv, archive, seeds(0, 2), 1);
+		assertThat(GameArchive.open(archive).size()).isEqualTo(4 * 2);
+		// games already in the CSV file are not played, so not archived, again
+		tournament().run(csv, archive, seeds(0, 3), 1);
+		var games = GameArchive.open(archive);
+		assertThat(games.size()).isEqualTo(4 * 3);
+		for (int game = 0; game < games.size(); game++) {
+			GameState end = games.replay(game, games.game(game).size(), new PackedGameStateFactory(), setup);
+			// every game is archived up to where it ended
+			assertThat(end.getWinner().isEmpty() && !end.getAvailableMoves().isEmpty()).isFalse();
+		}
+	}
+
+	@Test public void testWinRateInterval() throws Exception {
+		Path csv = folder.getRoot().toPath().resolve("results.csv");
+		for (MatchupStats stats : tournament().run(csv, seeds(0, 8), 2)) {
+			assertThat(stats.mrXWinRateLow()).isBetween(0.0, stats.mrXWinRate());
+			assertThat(stats.mrXWinRateHigh()).isBetween(stats.mrXWinRate(), 1.0);
+			// an interval over 8 games is wide either way
+			assertThat(stats.mrXWinRateHigh() - stats.mrXWinRateLow()).isGreaterThan(0.25);
+		}
+		// no games says nothing about the win rate
+		var none = tournament().run(folder.getRoot().toPath().resolve("none.csv"), List.of(), 1);
+		assertThat(none).allSatisfy(s -> {
+			assertThat(s.mrXWinRateLow()).isCloseTo(0, within(1e-9));
+			assertThat(s.mrXWinRateHigh()).isCloseTo(1, within(1e-9));
+		});
+	}
+}
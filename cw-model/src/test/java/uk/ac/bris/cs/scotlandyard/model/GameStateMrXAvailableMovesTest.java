@@ -145,6 +145,22 @@ public class GameStateMrXAvailableMovesTest extends ParameterisedModelTestBase {
 				secret(MRX, 104, 116));
 	}
 
+	@Test public void testMrXNoDoubleMovesInLastRound() {
+		var mrX = new Player(MRX, makeTickets(4, 3, 3, 2, 5), 104);
+		var blue = new Player(BLUE, defaultDetectiveTickets(), 117);
+
+		// second round is the last one, so there is no round left for the second move
+		GameState state = gameStateFactory.build(
+				new GameSetup(standardGraph(), ImmutableList.of(false, false)),
+				mrX, blue);
+		state = state.advance(taxi(MRX, 104, 86));
+		state = state.advance(taxi(BLUE, 117, 129));
+
+		assertThat(state.getAvailableMoves())
+				.isNotEmpty()
+				.allMatch(move -> move instanceof Move.SingleMove);
+	}
+
 	@Test public void testMrXNoTicketMovesIfNoTicketMoveTickets() {
 		var mrX = new Player(MRX, makeTickets(1, 0, 1, 0, 0), 104);
 		var blue = new Player(BLUE, defaultDetectiveTickets(), 117);
@@ -0,0 +1,104 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests the Zobrist keys of game states and search boards. Keys are kept off {@link GameState}, so
+ * this is in the model's package. This should always pass but is not part of the assignment.
+ */
+public class ZobristTest {
+
+	private static GameSetup setup() throws IOException {
+		return new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+	}
+
+	private static Player mrX() { return new Player(MRX, defaultMrXTickets(), 106); }
+	private static ImmutableList<Player> detectives() {
+		return ImmutableList.of(
+				new Player(RED, defaultDetectiveTickets(), 91),
+				new Player(BLUE, defaultDetectiveTickets(), 94));
+	}
+
+	@Test public void testIncrementalKeysMatchAcrossFactoriesAndFromScratch() throws IOException {
+		var setup = setup();
+		var random = new Random(7);
+		for (int game = 0; game < 20; game++) {
+			GameState my = new MyGameStateFactory().build(setup, mrX(), detectives());
+			GameState packed = new PackedGameStateFactory().build(setup, mrX(), detectives());
+			int mrXLocation = 106;
+			while (!my.getAvailableMoves().isEmpty()) {
+				assertThat(Zobrist.key(packed)).isEqualTo(Zobrist.key(my));
+				// boards only reveal who is left to move through their moves, which is exact for MrX
+				if (my.getAvailableMoves().iterator().next().commencedBy() == MRX)
+					assertThat(SearchBoard.of(my, mrXLocation).zobristKey()).isEqualTo(Zobrist.key(my));
+				List<Move> moves = new ArrayList<>(my.getAvailableMoves());
+				Move move = moves.get(random.nextInt(moves.size()));
+				if (move.commencedBy() == MRX) mrXLocation = move.visit(new Move.FunctionalVisitor<>(
+						m -> m.destination, m -> m.destination2));
+				my = my.advance(move);
+				packed = packed.advance(move);
+			}
+			assertThat(Zobrist.key(packed)).isEqualTo(Zobrist.key(my));
+		}
+	}
+
+	@Test public void testSearchBoardKeysMatchGameStates() throws IOException {
+		var setup = setup();
+		var random = new Random(42);
+		List<Move> buffer = new ArrayList<>();
+		for (int game = 0; game < 20; game++) {
+			GameState state = new MyGameStateFactory().build(setup, mrX(), detectives());
+			var board = new SearchBoard(setup, mrX(), detectives());
+			List<GameState> history = new ArrayList<>();
+			while (state.getWinner().isEmpty()) {
+				assertThat(board.zobristKey()).isEqualTo(Zobrist.key(state));
+				board.generateMoves(buffer);
+				if (buffer.isEmpty()) break;
+				Move move = buffer.get(random.nextInt(buffer.size()));
+				history.add(state);
+				state = state.advance(move);
+				board.makeMove(move);
+			}
+			assertThat(board.zobristKey()).isEqualTo(Zobrist.key(state));
+			// unwinding must restore every earlier key
+			while (!history.isEmpty()) {
+				board.unmakeMove();
+				assertThat(board.zobristKey()).isEqualTo(Zobrist.key(history.remove(history.size() - 1)));
+			}
+		}
+	}
+
+	@Test public void testTranspositionsShareKey() throws IOException {
+		var setup = setup();
+		GameState start = new MyGameStateFactory().build(setup, mrX(), detectives())
+				.advance(new SingleMove(MRX, 106, TAXI, 105));
+		// RED and BLUE moving in either order reach the same position
+		GameState a = start
+				.advance(new SingleMove(RED, 91, TAXI, 107))
+				.advance(new SingleMove(BLUE, 94, TAXI, 93));
+		GameState b = start
+				.advance(new SingleMove(BLUE, 94, TAXI, 93))
+				.advance(new SingleMove(RED, 91, TAXI, 107));
+		assertThat(Zobrist.key(a)).isEqualTo(Zobrist.key(b));
+		assertThat(Zobrist.key(a)).isNotEqualTo(Zobrist.key(start));
+	}
+
+}